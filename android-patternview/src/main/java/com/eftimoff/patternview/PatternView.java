@@ -1,18 +1,13 @@
 package com.eftimoff.patternview;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
-import android.os.Debug;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.os.SystemClock;
@@ -24,9 +19,27 @@ import android.view.View;
 import com.eftimoff.mylibrary.R;
 import com.eftimoff.patternview.cells.Cell;
 import com.eftimoff.patternview.cells.CellManager;
+import com.eftimoff.patternview.cells.CellTable;
+import com.eftimoff.patternview.cells.PatternBuffer;
+import com.eftimoff.patternview.cells.PatternCodec;
+import com.eftimoff.patternview.cells.PatternList;
+import com.eftimoff.patternview.cells.ReadOnlyPattern;
+import com.eftimoff.patternview.cells.UnmodifiablePattern;
+import com.eftimoff.patternview.debug.DebugOverlay;
+import com.eftimoff.patternview.graphics.BitmapCache;
+import com.eftimoff.patternview.graphics.CellTile;
+import com.eftimoff.patternview.graphics.DamageTracker;
+import com.eftimoff.patternview.graphics.FrameTicker;
+import com.eftimoff.patternview.graphics.GridLayer;
+import com.eftimoff.patternview.graphics.TintedBitmap;
+import com.eftimoff.patternview.security.PatternMatcher;
+import com.eftimoff.patternview.security.PatternVerifier;
+import com.eftimoff.patternview.touch.HitTester;
+import com.eftimoff.patternview.touch.PatternRecognizer;
+import com.eftimoff.patternview.touch.TouchPredictor;
+import com.eftimoff.patternview.touch.TouchSampleRing;
 import com.eftimoff.patternview.utils.CellUtils;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class PatternView extends View {
@@ -40,13 +53,54 @@ public class PatternView extends View {
      */
     private int gridRows;
     /**
-     * The maximum size when it is used wrap content.
+     * The size of the circles. It is also the size of a cell when it is used
+     * wrap content.
      */
     private int circleSize;
     /**
      * Manager for the cells.
      */
     private CellManager cellManager;
+    /**
+     * Turns the touch samples into the pattern.
+     */
+    private PatternRecognizer recognizer;
+    private final PatternRecognizer.Listener recognizerListener = new PatternRecognizer.Listener() {
+
+        @Override
+        public void onPatternReset() {
+            resetPatternState();
+        }
+
+        @Override
+        public void onPatternStart() {
+            notifyPatternStarted();
+        }
+
+        @Override
+        public void onPatternCellAdded(int index, int ordinal, boolean hit) {
+            addCellToPattern(index, ordinal, hit);
+        }
+
+        @Override
+        public void onPatternDetected() {
+            notifyPatternDetected();
+            damageTracker.addFull();
+        }
+
+        @Override
+        public void onPatternCleared() {
+            notifyPatternCleared();
+        }
+    };
+    /**
+     * The shape of the area that hits a cell.
+     */
+    private HitTester.Shape hitShape;
+    /**
+     * The size of the area that hits a cell as part of the cell size.
+     */
+    private float hitSize;
     /**
      * The paint the will draw the path.
      */
@@ -55,25 +109,28 @@ public class PatternView extends View {
      * The color of the path.
      */
     private int pathColor;
-    /**
-     * The paint of the circle.
-     */
-    private final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     /**
      * The color of the circle.
      */
     private int circleColor;
-    /**
-     * The paint of the dot.
-     */
-    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     /**
      * The color of the dot.
      */
     private int dotColor;
 
-    private static final boolean PROFILE_DRAWING = false;
-    private boolean drawingProfilingStarted = false;
+    /**
+     * Receives the timings and counters, or null when nothing is measured.
+     */
+    private PatternViewMetrics metrics;
+    /**
+     * Draws the frame times and input latency on top of the view, or null
+     * when it is disabled.
+     */
+    private DebugOverlay debugOverlay;
+    /**
+     * The time of the first touch event not drawn yet, -1 for none.
+     */
+    private long undrawnEventTime = -1;
 
     /**
      * How many milliseconds we spend animating each circle of a lock pattern if
@@ -82,14 +139,48 @@ public class PatternView extends View {
      */
     private static final int MILLIS_PER_CIRCLE_ANIMATING = 700;
 
+    /**
+     * How many touch samples are queued at most before they are processed,
+     * about a frame of samples at 1000 Hz.
+     */
+    private static final int TOUCH_SAMPLE_CAPACITY = 32;
+    /**
+     * The size of the largest bitmap assumed in the layout editor, which
+     * does not read the sizes of the resources.
+     */
+    private static final int EDIT_MODE_BITMAP_SIZE = 150;
+
     private OnPatternStartListener onPatternStartListener;
     private OnPatternClearedListener onPatternClearedListener;
     private OnPatternCellAddedListener onPatternCellAddedListener;
     private OnPatternDetectedListener onPatternDetectedListener;
+    private OnPatternCellListener onPatternCellListener;
+    private OnPatternCellBatchListener onPatternCellBatchListener;
+    /**
+     * The position of the first cell added during the current touch event,
+     * -1 if none was added yet.
+     */
+    private int batchStart = -1;
+    private PatternVerifier patternVerifier;
+    private PatternMatcher patternMatcher;
 
-
-    private ArrayList<Cell> mPattern;
-
+    /**
+     * The cells of the current pattern, in the order they were added.
+     */
+    private PatternBuffer mPattern;
+    /**
+     * Read only view over {@link #mPattern} returned by
+     * {@link #getPatternCells()} and handed to the cell listeners.
+     */
+    private ReadOnlyPattern mPatternCells;
+    /**
+     * Read only view over {@link #mPattern} returned by {@link #getPattern()}.
+     */
+    private PatternList mPatternList;
+    /**
+     * Reused to build the string of the pattern.
+     */
+    private char[] patternChars;
 
     /**
      * the in progress point: - during interaction: where the user's finger is -
@@ -99,33 +190,166 @@ public class PatternView extends View {
     private float inProgressY = -1;
 
     private long animatingPeriodStart;
+    /**
+     * How many circles of the animation are drawn, -1 when not computed yet.
+     */
+    private int animatingCircles = -1;
+    /**
+     * The maximum number of animation frames per second, 0 for no limit.
+     */
+    private int animationFrameRate;
+    /**
+     * The time of the frame the animation last moved on, in the
+     * {@link System#nanoTime()} time base, stepped by the frame interval of
+     * {@link #animationFrameRate} to keep its average.
+     */
+    private long animationFrameTimeNanos;
+    /**
+     * How much earlier than the frame interval a frame may come and still be
+     * drawn, for the jitter of the vsync times.
+     */
+    private static final long ANIMATION_FRAME_SLACK_NANOS = 1000000;
+    /**
+     * Moves the animation on display frames while the mode is Animate and the
+     * view is visible.
+     */
+    private final FrameTicker animationTicker = new FrameTicker(this, new FrameTicker.Callback() {
+
+        @Override
+        public void onFrame(long frameTimeNanos) {
+            if (patternDisplayMode == DisplayMode.Animate && isAnimationVisible()) {
+                if (skipAnimationFrame(frameTimeNanos)) {
+                    animationTicker.schedule();
+                } else {
+                    animationTicker.schedule(updateAnimation());
+                }
+            }
+        }
+    });
+
+    /**
+     * The touch samples that were not processed yet.
+     */
+    private final TouchSampleRing touchSamples = new TouchSampleRing(TOUCH_SAMPLE_CAPACITY);
+    /**
+     * Whether touch samples are processed once per display frame.
+     */
+    private boolean frameAlignedInput;
+    /**
+     * Whether the rubber band is drawn to where the finger is predicted to be.
+     */
+    private boolean predictiveRubberBand;
+    private final TouchPredictor touchPredictor = new TouchPredictor();
+    /**
+     * The refresh period of the display, read when a gesture starts.
+     */
+    private long frameIntervalNanos;
+    /**
+     * The start of the frame the queued touch samples are processed on, or
+     * -1 when they are processed on a touch event.
+     */
+    private long inputFrameTimeNanos = -1;
+    /**
+     * Processes the queued touch samples on display frames when the input is
+     * frame aligned.
+     */
+    private final FrameTicker inputTicker = new FrameTicker(this, new FrameTicker.Callback() {
+
+        @Override
+        public void onFrame(long frameTimeNanos) {
+            inputFrameTimeNanos = frameTimeNanos;
+            processTouchSamples();
+            inputFrameTimeNanos = -1;
+            damageTracker.flush(PatternView.this);
+            notifyCellBatch();
+        }
+    });
 
     private DisplayMode patternDisplayMode = DisplayMode.Correct;
     private boolean inputEnabled = true;
     private boolean inStealthMode = false;
     private boolean inErrorStealthMode = false;
     private boolean enableHapticFeedback = true;
-    private boolean patternInProgress = false;
 
     private final float diameterFactor = 0.10f;
-    private final float hitFactor = 0.6f;
 
     private float squareWidth;
     private float squareHeight;
 
-    private Bitmap bitmapBtnDefault;
-    private Bitmap bitmapBtnTouched;
-    private Bitmap bitmapCircleDefault;
-    private Bitmap bitmapCircleSelected;
-    private Bitmap bitmapCircleRed;
+    /**
+     * The circle and dot bitmaps with the circle and dot colors baked in, so
+     * that they are drawn without color filters. Shared through the
+     * {@link BitmapCache} with the views of the same colors, and taken again
+     * when a color changes.
+     */
+    private TintedBitmap tintedBtnDefault;
+    private TintedBitmap tintedCircleDefault;
+    private TintedBitmap tintedCircleSelected;
+    private TintedBitmap tintedCircleRed;
 
-    private final Path currentPath = new Path();
-    private final Rect invalidate = new Rect();
+    /**
+     * Whether the unselected grid is drawn from {@link #gridLayer}.
+     */
+    private boolean gridLayerCacheEnabled;
+    /**
+     * Whether the grid is drawn for many cells: the visible unselected cells
+     * from {@link #cellTile} in one call, with only the visible selected
+     * cells on top of it.
+     */
+    private boolean largeGridMode;
+    /**
+     * The clip bounds of the canvas being drawn, and the cells inside them.
+     */
+    private final Rect clipBounds = new Rect();
+    private int firstVisibleRow;
+    private int lastVisibleRow;
+    private int firstVisibleColumn;
+    private int lastVisibleColumn;
+    /**
+     * The grid with every cell unselected, rendered again only when the size,
+     * a color or a bitmap changes.
+     */
+    private final GridLayer gridLayer = new GridLayer();
+    /**
+     * One unselected cell, repeated over the grid in large grid mode.
+     */
+    private final CellTile cellTile = new CellTile();
+
+    private int btnDefaultResId = R.drawable.pattern_btn_touched;
+    private int circleDefaultResId = R.drawable.pattern_button_untouched;
+    private int circleSelectedResId = R.drawable.pattern_circle_white;
+    private int circleRedResId = R.drawable.pattern_circle_blue;
+    /**
+     * Whether the bitmaps are taken from the {@link BitmapCache}.
+     */
+    private boolean bitmapsLoaded;
 
-    private int bitmapWidth;
-    private int bitmapHeight;
+    /**
+     * The path through the drawn cells of the pattern. It is only extended
+     * when a cell is added, and built again when the pattern, the draw lookup
+     * or the size change. The segment to the in progress point is drawn on
+     * its own.
+     */
+    private final Path committedPath = new Path();
+    /**
+     * How many cells of the pattern are in {@link #committedPath}.
+     */
+    private int committedPathCells;
+    /**
+     * Collects the regions to draw again while handling a touch event.
+     */
+    private final DamageTracker damageTracker = new DamageTracker();
 
-    private final Matrix circleMatrix = new Matrix();
+    /**
+     * The size the largest bitmap is scaled to, the circle size limited to
+     * the cell size. 0 until the view has a size.
+     */
+    private int bitmapSize;
+    /**
+     * The scale shared by all bitmaps, so that the largest one is
+     * {@link #bitmapSize} and the others keep their size relative to it.
+     */
+    private float bitmapScale;
 
     private final int padding = 0;
     private final int paddingLeft = padding;
@@ -147,7 +371,6 @@ public class PatternView extends View {
         pathPaint.setStyle(Paint.Style.STROKE);
         pathPaint.setStrokeJoin(Paint.Join.ROUND);
         pathPaint.setStrokeCap(Paint.Cap.ROUND);
-        loadBitmaps();
     }
 
     private void getFromAttributes(Context context, AttributeSet attrs) {
@@ -159,6 +382,16 @@ public class PatternView extends View {
             pathColor = typedArray.getColor(R.styleable.PatternView_pathColor, Color.BLACK);
             gridColumns = typedArray.getInt(R.styleable.PatternView_gridColumns, 3);
             gridRows = typedArray.getInt(R.styleable.PatternView_gridRows, 3);
+            gridLayerCacheEnabled = typedArray.getBoolean(R.styleable.PatternView_gridLayerCacheEnabled, false);
+            largeGridMode = typedArray.getBoolean(R.styleable.PatternView_largeGridMode, false);
+            animationFrameRate = typedArray.getInt(R.styleable.PatternView_animationFrameRate, 0);
+            frameAlignedInput = typedArray.getBoolean(R.styleable.PatternView_frameAlignedInput, false);
+            predictiveRubberBand = typedArray.getBoolean(R.styleable.PatternView_predictiveRubberBand, false);
+            if (typedArray.getBoolean(R.styleable.PatternView_debugOverlayEnabled, false)) {
+                debugOverlay = new DebugOverlay();
+            }
+            hitShape = HitTester.Shape.values()[typedArray.getInt(R.styleable.PatternView_hitShape, 0)];
+            hitSize = typedArray.getFloat(R.styleable.PatternView_hitSize, HitTester.DEFAULT_HIT_SIZE);
         } finally {
             typedArray.recycle();
         }
@@ -169,8 +402,13 @@ public class PatternView extends View {
         setCircleColor(circleColor);
         setDotColor(dotColor);
         cellManager = new CellManager(gridRows, gridColumns);
-        final int matrixSize = cellManager.getSize();
-        mPattern = new ArrayList<>(matrixSize);
+        recognizer = new PatternRecognizer(gridRows, gridColumns);
+        recognizer.setListener(recognizerListener);
+        recognizer.getHitTester().setShape(hitShape);
+        recognizer.getHitTester().setHitSize(hitSize);
+        mPattern = recognizer.getPattern();
+        mPatternList = new PatternList(mPattern, cellManager);
+        mPatternCells = new UnmodifiablePattern(mPattern);
     }
 
     /**
@@ -179,8 +417,14 @@ public class PatternView extends View {
      * @param resId
      */
     public void setSelectedBitmap(final int resId) {
-        bitmapCircleSelected = getBitmapFor(resId);
-        computeBitmapSize();
+        circleSelectedResId = resId;
+        if (bitmapsLoaded) {
+            if (!updateBitmapSize()) {
+                releaseTinted(tintedCircleSelected);
+                tintedCircleSelected = acquireTinted(resId, circleColor);
+            }
+            invalidate();
+        }
     }
 
     /**
@@ -189,37 +433,142 @@ public class PatternView extends View {
      * @param resId
      */
     public void setDefaultBitmap(final int resId) {
-        bitmapCircleDefault = getBitmapFor(resId);
-        computeBitmapSize();
+        circleDefaultResId = resId;
+        if (bitmapsLoaded) {
+            if (!updateBitmapSize()) {
+                releaseTinted(tintedCircleDefault);
+                tintedCircleDefault = acquireTinted(resId, circleColor);
+                gridLayer.invalidate();
+                cellTile.invalidate();
+            }
+            invalidate();
+        }
     }
 
+    /**
+     * Takes the tinted bitmaps from the {@link BitmapCache} already scaled by
+     * {@link #bitmapScale}, so they can be drawn without scaling.
+     */
     private void loadBitmaps() {
-        bitmapBtnDefault = getBitmapFor(R.drawable.pattern_btn_touched);
-        bitmapBtnTouched = bitmapBtnDefault;
-        bitmapCircleDefault = getBitmapFor(R.drawable.pattern_button_untouched);
+        bitmapsLoaded = true;
+        loadCircleTints();
+        loadDotTints();
+        if (metrics != null) {
+            metrics.onCount(PatternViewMetrics.Counter.BITMAP_LOAD);
+        }
+    }
+
+    private void loadCircleTints() {
+        releaseTinted(tintedCircleDefault);
+        releaseTinted(tintedCircleSelected);
+        releaseTinted(tintedCircleRed);
+        tintedCircleDefault = acquireTinted(circleDefaultResId, circleColor);
+        tintedCircleSelected = acquireTinted(circleSelectedResId, circleColor);
+        tintedCircleRed = acquireTinted(circleRedResId, circleColor);
+        gridLayer.invalidate();
+        cellTile.invalidate();
+    }
 
-        bitmapCircleSelected = getBitmapFor(R.drawable.pattern_circle_white);
-        bitmapCircleRed = getBitmapFor(R.drawable.pattern_circle_blue);
-        computeBitmapSize();
+    private void loadDotTints() {
+        releaseTinted(tintedBtnDefault);
+        tintedBtnDefault = acquireTinted(btnDefaultResId, dotColor);
+        gridLayer.invalidate();
+        cellTile.invalidate();
     }
 
-    private void computeBitmapSize() {
-        // bitmaps have the size of the largest bitmap in this group
-        final Bitmap[] bitmaps = {bitmapBtnDefault, bitmapCircleSelected, bitmapCircleRed};
+    /**
+     * Gives the bitmaps back to the {@link BitmapCache}. They are taken again
+     * by {@link #loadBitmaps()} when the view is attached or resized.
+     */
+    private void releaseBitmaps() {
+        releaseTinted(tintedBtnDefault);
+        releaseTinted(tintedCircleDefault);
+        releaseTinted(tintedCircleSelected);
+        releaseTinted(tintedCircleRed);
+        tintedBtnDefault = null;
+        tintedCircleDefault = null;
+        tintedCircleSelected = null;
+        tintedCircleRed = null;
+        gridLayer.recycle();
+        cellTile.recycle();
+        bitmapsLoaded = false;
+    }
+
+    /**
+     * Computes the size the circles are drawn at and the scale of the
+     * bitmaps, and scales the bitmaps again if it changed. Called once per
+     * layout or change of bitmap, never while drawing.
+     *
+     * @return Whether the bitmaps were scaled again.
+     */
+    private boolean updateBitmapSize() {
+        final int size = Math.max(1, (int) Math.min(circleSize, Math.min(squareWidth, squareHeight)));
+        final int largest;
         if (isInEditMode()) {
-            bitmapWidth = Math.max(bitmapWidth, 150);
-            bitmapHeight = Math.max(bitmapHeight, 150);
-            return;
+            largest = EDIT_MODE_BITMAP_SIZE;
+        } else {
+            final Resources resources = getContext().getResources();
+            largest = Math.max(
+                    Math.max(BitmapCache.getSourceSize(resources, btnDefaultResId),
+                            BitmapCache.getSourceSize(resources, circleDefaultResId)),
+                    Math.max(BitmapCache.getSourceSize(resources, circleSelectedResId),
+                            BitmapCache.getSourceSize(resources, circleRedResId)));
         }
+        final float scale = size / (float) Math.max(1, largest);
+        if (size == bitmapSize && scale == bitmapScale) {
+            return false;
+        }
+        bitmapSize = size;
+        bitmapScale = scale;
+        if (bitmapsLoaded) {
+            releaseBitmaps();
+            loadBitmaps();
+        }
+        return true;
+    }
+
+    private TintedBitmap acquireTinted(final int resId, final int color) {
+        final Resources resources = getContext().getResources();
+        final int size = Math.max(1, Math.round(BitmapCache.getSourceSize(resources, resId) * bitmapScale));
+        return BitmapCache.getInstance().acquireTinted(resources, resId, size, color);
+    }
+
+    private void releaseTinted(final TintedBitmap tinted) {
+        if (tinted != null) {
+            BitmapCache.getInstance().release(tinted);
+        }
+    }
 
-        for (final Bitmap bitmap : bitmaps) {
-            bitmapWidth = Math.max(bitmapWidth, bitmap.getWidth());
-            bitmapHeight = Math.max(bitmapHeight, bitmap.getHeight());
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (!bitmapsLoaded && bitmapSize > 0) {
+            loadBitmaps();
+        }
+        resumeAnimation();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        animationTicker.cancel();
+        if (inputTicker.isScheduled()) {
+            inputTicker.cancel();
+            processTouchSamples();
         }
+        releaseBitmaps();
     }
 
-    private Bitmap getBitmapFor(final int resId) {
-        return BitmapFactory.decodeResource(getContext().getResources(), resId);
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        resumeAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        resumeAnimation();
     }
 
     /**
@@ -264,6 +613,152 @@ public class PatternView extends View {
         enableHapticFeedback = tactileFeedbackEnabled;
     }
 
+    /**
+     * @return Whether the unselected grid is drawn from a cached layer.
+     */
+    public boolean isGridLayerCacheEnabled() {
+        return gridLayerCacheEnabled;
+    }
+
+    /**
+     * Set whether the unselected grid is rendered once into an offscreen
+     * bitmap and drawn with a single call, so each frame only draws the
+     * selected cells and the path on top of it. The layer costs one bitmap of
+     * the size of the view and is rendered again when the size, a color or a
+     * bitmap changes. Selected cells are drawn over the unselected ones, so
+     * their bitmaps should cover them. Not used in
+     * {@link #setLargeGridMode(boolean) large grid mode}.
+     *
+     * @param gridLayerCacheEnabled Whether the layer is used.
+     */
+    public void setGridLayerCacheEnabled(boolean gridLayerCacheEnabled) {
+        this.gridLayerCacheEnabled = gridLayerCacheEnabled;
+        if (!isGridLayerUsed()) {
+            gridLayer.recycle();
+        }
+        invalidate();
+    }
+
+    public boolean isLargeGridMode() {
+        return largeGridMode;
+    }
+
+    /**
+     * Set whether the grid is drawn the way that scales to many cells: one
+     * unselected cell is rendered into a bitmap of the size of a cell and
+     * repeated by a shader over the cells inside the clip bounds of the
+     * canvas in one call, and only the visible selected cells are drawn on
+     * top of it. A frame costs as much as the selected cells and not the
+     * grid, without the bitmap of the size of the view of
+     * {@link #setGridLayerCacheEnabled(boolean)}, which is not used in this
+     * mode.
+     * <p/>
+     * The cells are measured as a whole number of pixels, so that the cell is
+     * repeated pixel for pixel and never scaled. The grid can then leave up
+     * to a pixel per row and column of the view unused at its right and
+     * bottom edges.
+     *
+     * @param largeGridMode Whether to use the large grid mode.
+     */
+    public void setLargeGridMode(boolean largeGridMode) {
+        this.largeGridMode = largeGridMode;
+        if (largeGridMode) {
+            gridLayer.recycle();
+        } else {
+            cellTile.recycle();
+        }
+        // the cell size depends on the mode
+        requestLayout();
+        invalidate();
+    }
+
+    private boolean isGridLayerUsed() {
+        return gridLayerCacheEnabled && !largeGridMode;
+    }
+
+    /**
+     * Set a hook that is told about every region invalidated by a touch event
+     * or by clearing the pattern, e.g. to check the overdraw in tests.
+     *
+     * @param onDamageListener The hook, or null.
+     */
+    public void setOnDamageListener(DamageTracker.OnDamageListener onDamageListener) {
+        damageTracker.setOnDamageListener(onDamageListener);
+    }
+
+    /**
+     * Set the hook that receives the timings of hit testing, gap filling,
+     * listener dispatch and drawing, and the counters of frames,
+     * invalidations and allocating operations. Nothing is measured without
+     * one.
+     *
+     * @param metrics The hook, or null.
+     */
+    public void setMetrics(PatternViewMetrics metrics) {
+        this.metrics = metrics;
+        recognizer.setMetrics(metrics);
+    }
+
+    public PatternViewMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the call back for every cell added to the pattern, with the cell
+     * and the pattern.
+     *
+     * @param onPatternCellListener The call back.
+     */
+    public void setOnPatternCellListener(OnPatternCellListener onPatternCellListener) {
+        this.onPatternCellListener = onPatternCellListener;
+    }
+
+    /**
+     * Set the call back for the cells added to the pattern during a touch
+     * event, including the cells filled in between, with a single call per
+     * event.
+     *
+     * @param onPatternCellBatchListener The call back.
+     */
+    public void setOnPatternCellBatchListener(OnPatternCellBatchListener onPatternCellBatchListener) {
+        this.onPatternCellBatchListener = onPatternCellBatchListener;
+    }
+
+    /**
+     * Set a verifier that is fed every cell as it is added, so that the
+     * digest of the pattern is ready when the pattern is detected.
+     *
+     * @param patternVerifier The verifier, or null.
+     */
+    public void setPatternVerifier(PatternVerifier patternVerifier) {
+        this.patternVerifier = patternVerifier;
+        replayPattern();
+    }
+
+    public PatternVerifier getPatternVerifier() {
+        return patternVerifier;
+    }
+
+    /**
+     * Set a matcher of enrolled patterns that is moved on with every cell as
+     * it is added. Check its state from an {@link OnPatternCellAddedListener}
+     * to reject a pattern before it is finished.
+     *
+     * @param patternMatcher The matcher, of the size of this view, or null.
+     */
+    public void setPatternMatcher(PatternMatcher patternMatcher) {
+        if (patternMatcher != null && (patternMatcher.getRowCount() != gridRows
+                || patternMatcher.getColumnCount() != gridColumns)) {
+            throw new IllegalArgumentException("the matcher must be " + gridRows + "x" + gridColumns);
+        }
+        this.patternMatcher = patternMatcher;
+        replayPattern();
+    }
+
+    public PatternMatcher getPatternMatcher() {
+        return patternMatcher;
+    }
+
     /**
      * Set the call back for pattern start.
      *
@@ -307,39 +802,254 @@ public class PatternView extends View {
      * @param displayMode How to display the pattern.
      * @param pattern     The pattern.
      */
-    public void setPattern(final DisplayMode displayMode, final List<Cell> pattern) {
-        mPattern.clear();
-        mPattern.addAll(pattern);
-        clearPatternDrawLookup();
-        for (Cell cell : pattern) {
-            cellManager.draw(cell, true);
+    public void setPattern(final DisplayMode displayMode, final List<Cell> pattern) {
+        // the pattern may be our own view from getPattern()
+        if (pattern != mPatternList) {
+            mPattern.clear();
+            for (Cell cell : pattern) {
+                mPattern.add(cell.getRow(), cell.getColumn());
+            }
+        }
+        clearPatternDrawLookup();
+        for (int i = 0; i < mPattern.size(); i++) {
+            cellManager.draw(mPattern.getRow(i), mPattern.getColumn(i), true);
+        }
+        replayPattern();
+
+        setDisplayMode(displayMode);
+    }
+
+    /**
+     * Set the pattern explicitly from its compact binary form, see
+     * {@link #patternToBytes()}.
+     *
+     * @param displayMode How to display the pattern.
+     * @param pattern     The encoded pattern.
+     * @throws IllegalArgumentException If the pattern is malformed or of
+     *                                  another size than this view, the
+     *                                  current pattern is cleared.
+     */
+    public void setPattern(final DisplayMode displayMode, final byte[] pattern) {
+        try {
+            PatternCodec.decode(pattern, 0, pattern.length, mPattern);
+        } catch (IllegalArgumentException e) {
+            resetPattern();
+            invalidate();
+            throw e;
+        }
+        setPattern(displayMode, mPatternList);
+    }
+
+    /**
+     * Set the display mode of the current pattern. This can be useful, for
+     * instance, after detecting a pattern to tell this view whether change the
+     * in progress result to correct or wrong.
+     *
+     * @param displayMode The display mode.
+     */
+    public void setDisplayMode(final DisplayMode displayMode) {
+        patternDisplayMode = displayMode;
+        if (displayMode == DisplayMode.Animate) {
+            if (mPattern.isEmpty()) {
+                throw new IllegalStateException(
+                        "you must have a pattern to "
+                                + "animate if you want to set the display mode to animate");
+            }
+            animatingPeriodStart = SystemClock.elapsedRealtime();
+            animatingCircles = -1;
+            inProgressX = getCenterXForColumn(mPattern.getColumn(0));
+            inProgressY = getCenterYForRow(mPattern.getRow(0));
+            clearPatternDrawLookup();
+            resumeAnimation();
+        } else {
+            animationTicker.cancel();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return The maximum number of animation frames per second, 0 for no limit.
+     */
+    public int getAnimationFrameRate() {
+        return animationFrameRate;
+    }
+
+    /**
+     * Set the maximum number of frames per second drawn in
+     * {@link DisplayMode#Animate}. Frames where the animation did not move by
+     * a pixel are skipped in any case.
+     *
+     * @param animationFrameRate The frame rate, 0 for the display refresh rate.
+     */
+    public void setAnimationFrameRate(int animationFrameRate) {
+        if (animationFrameRate < 0) {
+            throw new IllegalArgumentException("animationFrameRate must not be negative");
+        }
+        this.animationFrameRate = animationFrameRate;
+    }
+
+    public boolean isFrameAlignedInput() {
+        return frameAlignedInput;
+    }
+
+    /**
+     * Set whether touch samples are queued and processed once per display
+     * frame instead of on every touch event. The same cells are hit either
+     * way, but the work per frame no longer grows with the touch sampling
+     * rate. The batch listener is then called once per frame.
+     *
+     * @param frameAlignedInput Whether to align the input with frames.
+     */
+    public void setFrameAlignedInput(boolean frameAlignedInput) {
+        this.frameAlignedInput = frameAlignedInput;
+        if (!frameAlignedInput && inputTicker.isScheduled()) {
+            inputTicker.cancel();
+            processTouchSamples();
+            damageTracker.flush(this);
+            notifyCellBatch();
+        }
+    }
+
+    public boolean isPredictiveRubberBand() {
+        return predictiveRubberBand;
+    }
+
+    /**
+     * Set whether the line from the last cell to the finger is drawn to where
+     * the finger is predicted to be when the frame is shown, from the speed
+     * of the recent touch samples, instead of the last sample. Cells are
+     * still only hit by the real samples. With {@link #setFrameAlignedInput}
+     * the prediction reaches the vsync the frame is shown on, otherwise a
+     * display refresh period past the last sample.
+     *
+     * @param predictiveRubberBand Whether to predict the rubber band.
+     */
+    public void setPredictiveRubberBand(boolean predictiveRubberBand) {
+        this.predictiveRubberBand = predictiveRubberBand;
+        touchPredictor.reset();
+        if (predictiveRubberBand) {
+            frameIntervalNanos = inputTicker.getFrameIntervalNanos();
+        }
+    }
+
+    public boolean isDebugOverlayEnabled() {
+        return debugOverlay != null;
+    }
+
+    /**
+     * Set whether rolling graphs of the draw time of each frame, the time from
+     * a touch event to the frame that shows it and the samples per touch event
+     * are drawn across the top of the view.
+     *
+     * @param debugOverlayEnabled Whether to draw the overlay.
+     */
+    public void setDebugOverlayEnabled(boolean debugOverlayEnabled) {
+        if (debugOverlayEnabled == (debugOverlay != null)) {
+            return;
+        }
+        if (debugOverlayEnabled) {
+            debugOverlay = new DebugOverlay();
+            debugOverlay.setSize(getWidth(), getHeight());
+        } else {
+            debugOverlay = null;
+        }
+        undrawnEventTime = -1;
+        invalidate();
+    }
+
+    /**
+     * Starts moving the animation on display frames again if the mode is
+     * Animate and the view is visible, stops it otherwise.
+     */
+    private void resumeAnimation() {
+        if (animationTicker == null) {
+            // the View constructor dispatches the visibility of a view
+            // inflated invisible or gone before the fields are initialized
+            return;
+        }
+        if (patternDisplayMode == DisplayMode.Animate && !mPattern.isEmpty() && isAnimationVisible()) {
+            animationTicker.cancel();
+            animationTicker.schedule(updateAnimation());
+        } else {
+            animationTicker.cancel();
+        }
+    }
+
+    private boolean isAnimationVisible() {
+        return getWindowVisibility() == VISIBLE && isShown();
+    }
+
+    /**
+     * Moves the animation to the current time and invalidates the view if a
+     * circle was added or the tip of the line moved by at least a pixel.
+     *
+     * @return The delay in milliseconds until the animation needs to move
+     * again, 0 for the next frame.
+     */
+    private long updateAnimation() {
+        final PatternBuffer pattern = mPattern;
+        final int count = pattern.size();
+
+        final int oneCycle = (count + 1) * MILLIS_PER_CIRCLE_ANIMATING;
+        final int spotInCycle = (int) (SystemClock.elapsedRealtime() - animatingPeriodStart)
+                % oneCycle;
+        final int numCircles = spotInCycle / MILLIS_PER_CIRCLE_ANIMATING;
+
+        if (numCircles != animatingCircles) {
+            animatingCircles = numCircles;
+            clearPatternDrawLookup();
+            for (int i = 0; i < numCircles; i++) {
+                cellManager.draw(pattern.getRow(i), pattern.getColumn(i), true);
+            }
+            invalidate();
         }
 
-        setDisplayMode(displayMode);
+        final boolean needToUpdateInProgressPoint = numCircles > 0
+                && numCircles < count;
+
+        if (!needToUpdateInProgressPoint) {
+            // nothing moves until the next circle
+            return MILLIS_PER_CIRCLE_ANIMATING - spotInCycle % MILLIS_PER_CIRCLE_ANIMATING;
+        }
+        final float percentageOfNextCircle = ((float) (spotInCycle % MILLIS_PER_CIRCLE_ANIMATING))
+                / MILLIS_PER_CIRCLE_ANIMATING;
+
+        final float centerX = getCenterXForColumn(pattern.getColumn(numCircles - 1));
+        final float centerY = getCenterYForRow(pattern.getRow(numCircles - 1));
+
+        final float dx = percentageOfNextCircle
+                * (getCenterXForColumn(pattern.getColumn(numCircles)) - centerX);
+        final float dy = percentageOfNextCircle
+                * (getCenterYForRow(pattern.getRow(numCircles)) - centerY);
+        if (Math.abs(centerX + dx - inProgressX) >= 1f || Math.abs(centerY + dy - inProgressY) >= 1f) {
+            inProgressX = centerX + dx;
+            inProgressY = centerY + dy;
+            invalidate();
+        }
+        return 0;
     }
 
     /**
-     * Set the display mode of the current pattern. This can be useful, for
-     * instance, after detecting a pattern to tell this view whether change the
-     * in progress result to correct or wrong.
+     * Caps the animation at {@link #animationFrameRate} by skipping display
+     * frames that come too early after the last drawn one, so the cap does
+     * not add to the wait for vsync.
      *
-     * @param displayMode The display mode.
+     * @param frameTimeNanos The time of the frame.
+     * @return Whether to skip the frame.
      */
-    public void setDisplayMode(final DisplayMode displayMode) {
-        patternDisplayMode = displayMode;
-        if (displayMode == DisplayMode.Animate) {
-            if (mPattern.size() == 0) {
-                throw new IllegalStateException(
-                        "you must have a pattern to "
-                                + "animate if you want to set the display mode to animate");
-            }
-            animatingPeriodStart = SystemClock.elapsedRealtime();
-            final Cell first = mPattern.get(0);
-            inProgressX = getCenterXForColumn(first.getColumn());
-            inProgressY = getCenterYForRow(first.getRow());
-            clearPatternDrawLookup();
+    private boolean skipAnimationFrame(final long frameTimeNanos) {
+        if (animationFrameRate <= 0) {
+            return false;
         }
-        invalidate();
+        final long intervalNanos = 1000000000L / animationFrameRate;
+        final long elapsed = frameTimeNanos - animationFrameTimeNanos;
+        if (elapsed < intervalNanos - ANIMATION_FRAME_SLACK_NANOS) {
+            return true;
+        }
+        // a frame or more behind, e.g. after a pause, starts over
+        animationFrameTimeNanos = elapsed >= 2 * intervalNanos
+                ? frameTimeNanos : animationFrameTimeNanos + intervalNanos;
+        return false;
     }
 
     /**
@@ -357,13 +1067,24 @@ public class PatternView extends View {
      * Retrieves current displaying pattern. This method is useful in case of
      * storing states and restoring them after screen orientation changed.
      *
-     * @return current displaying pattern. <b>Note:</b> This is an independent
-     * list with the view's pattern itself.
+     * @return current displaying pattern. <b>Note:</b> This is a read only
+     * view of the view's pattern, it changes together with it. Copy it if you
+     * need to keep it.
      * @since v1.5.3 beta
      */
-    @SuppressWarnings("unchecked")
     public List<Cell> getPattern() {
-        return (List<Cell>) mPattern.clone();
+        return mPatternList;
+    }
+
+    /**
+     * The current pattern as packed cell indices, without copying it. It
+     * changes as the pattern changes. The same read only view is returned
+     * every time and handed to the cell listeners.
+     *
+     * @return The pattern. Never null
+     */
+    public ReadOnlyPattern getPatternCells() {
+        return mPatternCells;
     }
 
     /**
@@ -382,37 +1103,72 @@ public class PatternView extends View {
         if (mPattern == null) {
             return "";
         }
-        final int patternSize = mPattern.size();
-        final StringBuilder res = new StringBuilder(patternSize);
-        for (int i = 0; i < patternSize; i++) {
-            final String cellToString = mPattern.get(i).getId();
-            res.append(cellToString);
-            if (i != patternSize - 1) {
-                res.append("&");
-            }
+        countPatternExport();
+        final CellTable cellTable = cellManager.getCellTable();
+        if (patternChars == null) {
+            patternChars = new char[cellTable.getMaxPatternStringLength()];
         }
-        return res.toString();
+        final int length = cellTable.writePatternString(mPattern, patternChars);
+        return new String(patternChars, 0, length);
     }
 
     public int[] patternToIntArray() {
         if (mPattern == null) {
             return new int[0];
         }
+        countPatternExport();
         final int patternSize = mPattern.size();
         final int[] array = new int[patternSize * 2];
         for (int i = 0; i < patternSize; i++) {
-            array[i] = mPattern.get(i).getRow();
-            array[i + 1] = mPattern.get(i).getColumn();
+            array[2 * i] = mPattern.getRow(i);
+            array[2 * i + 1] = mPattern.getColumn(i);
         }
         return array;
     }
 
-    private void notifyCellAdded() {
+    /**
+     * @return The current pattern in the compact binary form of
+     * {@link PatternCodec}. Never null
+     */
+    public byte[] patternToBytes() {
+        countPatternExport();
+        return PatternCodec.encode(mPattern);
+    }
+
+    private void countPatternExport() {
+        if (metrics != null) {
+            metrics.onCount(PatternViewMetrics.Counter.PATTERN_EXPORT);
+        }
+    }
+
+    private void notifyCellAdded(final int index) {
+        if (onPatternCellListener != null) {
+            onPatternCellListener.onPatternCellAdded(index, mPattern.size() - 1, mPatternCells);
+        }
         if (onPatternCellAddedListener != null) {
             onPatternCellAddedListener.onPatternCellAdded();
         }
     }
 
+    /**
+     * Reports the cells added during the current touch event, if any.
+     */
+    private void notifyCellBatch() {
+        if (batchStart < 0) {
+            return;
+        }
+        final int start = batchStart;
+        batchStart = -1;
+        if (onPatternCellBatchListener != null) {
+            final PatternViewMetrics metrics = this.metrics;
+            final long startNanos = metrics != null ? System.nanoTime() : 0;
+            onPatternCellBatchListener.onPatternCellsAdded(start, mPattern.size() - start, mPatternCells);
+            if (metrics != null) {
+                metrics.onTiming(PatternViewMetrics.Timing.DISPATCH, System.nanoTime() - startNanos);
+            }
+        }
+    }
+
     private void notifyPatternStarted() {
         if (onPatternStartListener != null) {
             onPatternStartListener.onPatternStart();
@@ -437,6 +1193,7 @@ public class PatternView extends View {
     public void clearPattern() {
         cancelClearDelay();
         resetPattern();
+        damageTracker.flush(this);
         notifyPatternCleared();
     }
 
@@ -444,21 +1201,67 @@ public class PatternView extends View {
      * Reset all pattern state.
      */
     private void resetPattern() {
-        mPattern.clear();
+        recognizer.reset();
+    }
+
+    /**
+     * Reset the state that depends on the pattern, called by the recognizer
+     * whenever the pattern is emptied.
+     */
+    private void resetPatternState() {
+        batchStart = -1;
         clearPatternDrawLookup();
+        if (patternVerifier != null) {
+            patternVerifier.reset();
+        }
+        if (patternMatcher != null) {
+            patternMatcher.reset();
+        }
         patternDisplayMode = DisplayMode.Correct;
-        invalidate();
+        animationTicker.cancel();
+        damageTracker.addFull();
     }
 
     /**
      * Clear the pattern lookup table.
      */
     private void clearPatternDrawLookup() {
-        for (int i = 0; i < gridRows; i++) {
-            for (int j = 0; j < gridColumns; j++) {
-                cellManager.clearDrawing();
+        cellManager.clearDrawing();
+        invalidateCommittedPath();
+    }
+
+    private void invalidateCommittedPath() {
+        committedPath.rewind();
+        committedPathCells = 0;
+    }
+
+    /**
+     * Extends {@link #committedPath} with the cells added since the last
+     * frame. Like before, only the part of the pattern stored in the lookup
+     * table is drawn (this is only different in the case of animation).
+     */
+    private void updateCommittedPath() {
+        final PatternBuffer pattern = mPattern;
+        final int count = pattern.size();
+        int i = committedPathCells;
+        for (; i < count; i++) {
+            final int row = pattern.getRow(i);
+            final int column = pattern.getColumn(i);
+            if (!cellManager.isDrawn(row, column)) {
+                break;
+            }
+            final float centerX = getCenterXForColumn(column);
+            final float centerY = getCenterYForRow(row);
+            if (i == 0) {
+                committedPath.moveTo(centerX, centerY);
+            } else {
+                committedPath.lineTo(centerX, centerY);
+                if (metrics != null) {
+                    metrics.onCount(PatternViewMetrics.Counter.PATH_SEGMENT);
+                }
             }
         }
+        committedPathCells = i;
     }
 
     /**
@@ -492,7 +1295,9 @@ public class PatternView extends View {
 
     public void setCircleColor(int circleColor) {
         this.circleColor = circleColor;
-        circlePaint.setColorFilter(new PorterDuffColorFilter(circleColor, PorterDuff.Mode.MULTIPLY));
+        if (bitmapsLoaded) {
+            loadCircleTints();
+        }
         invalidate();
     }
 
@@ -502,10 +1307,41 @@ public class PatternView extends View {
 
     public void setDotColor(int dotColor) {
         this.dotColor = dotColor;
-        dotPaint.setColorFilter(new PorterDuffColorFilter(dotColor, PorterDuff.Mode.MULTIPLY));
+        if (bitmapsLoaded) {
+            loadDotTints();
+        }
         invalidate();
     }
 
+    public HitTester.Shape getHitShape() {
+        return hitShape;
+    }
+
+    /**
+     * Set the shape of the area around each cell that hits the cell.
+     *
+     * @param hitShape The shape.
+     */
+    public void setHitShape(HitTester.Shape hitShape) {
+        recognizer.getHitTester().setShape(hitShape);
+        this.hitShape = hitShape;
+    }
+
+    public float getHitSize() {
+        return hitSize;
+    }
+
+    /**
+     * Set the size of the area around each cell that hits the cell, as part
+     * of the cell size. For a circle this is the diameter.
+     *
+     * @param hitSize Value in the range (0, 1].
+     */
+    public void setHitSize(float hitSize) {
+        recognizer.getHitTester().setHitSize(hitSize);
+        this.hitSize = hitSize;
+    }
+
     @Override
     protected int getSuggestedMinimumWidth() {
         // View should be large enough to contain MATRIX_WIDTH side-by-side
@@ -543,132 +1379,83 @@ public class PatternView extends View {
 
         squareWidth = Math.min(squareWidth, squareHeight);
         squareHeight = Math.min(squareWidth, squareHeight);
+        if (largeGridMode) {
+            // whole pixels, so that the tile repeats without filtering
+            squareWidth = Math.max(1, (int) squareWidth);
+            squareHeight = squareWidth;
+        }
         setMeasuredDimension(width, height);
     }
 
-
-    /**
-     * Determines whether the point x, y will add a new point to the current
-     * pattern (in addition to finding the cell, also makes heuristic choices
-     * such as filling in gaps based on current pattern).
-     *
-     * @param x The x coordinate.
-     * @param y The y coordinate.
-     */
-    private Cell detectAndAddHit(float x, float y) {
-        final Cell cell = checkForNewHit(x, y);
-        if (cell != null) {
-
-            // check for gaps in existing pattern
-            // Cell fillInGapCelal = null;
-            final ArrayList<Cell> newCells = new ArrayList<>();
-            if (!mPattern.isEmpty()) {
-                final Cell lastCell = mPattern.get(mPattern.size() - 1);
-                int dRow = cell.getRow() - lastCell.getRow();
-                int dCol = cell.getColumn() - lastCell.getColumn();
-                int rsign = dRow > 0 ? 1 : -1;
-                int csign = dCol > 0 ? 1 : -1;
-
-                if (dRow == 0) {
-                    for (int i = 1; i < Math.abs(dCol); i++) {
-                        newCells.add(new Cell(lastCell.getRow(), lastCell.getColumn()
-                                + i * csign));
-                    }
-                } else if (dCol == 0) {
-                    for (int i = 1; i < Math.abs(dRow); i++) {
-                        newCells.add(new Cell(lastCell.getRow() + i * rsign,
-                                lastCell.getColumn()));
-                    }
-                } else if (Math.abs(dCol) == Math.abs(dRow)) {
-                    for (int i = 1; i < Math.abs(dRow); i++) {
-                        newCells.add(new Cell(lastCell.getRow() + i * rsign,
-                                lastCell.getColumn() + i * csign));
-                    }
-                }
-
-            }
-            for (Cell fillInGapCell : newCells) {
-                if (fillInGapCell != null && !cellManager.isDrawn(fillInGapCell)) {
-                    addCellToPattern(fillInGapCell);
-                }
-            }
-            addCellToPattern(cell);
-            if (enableHapticFeedback) {
-                performHapticFeedback(
-                        HapticFeedbackConstants.VIRTUAL_KEY,
-                        HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING
-                                | HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING);
-            }
-            return cell;
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        recognizer.getHitTester().setGeometry(paddingLeft, paddingTop, squareWidth, squareHeight);
+        updateBitmapSize();
+        gridLayer.invalidate();
+        cellTile.invalidate();
+        invalidateCommittedPath();
+        if (debugOverlay != null) {
+            debugOverlay.setSize(w, h);
         }
-        return null;
-    }
-
-    private void addCellToPattern(Cell newCell) {
-        cellManager.draw(newCell, true);
-        mPattern.add(newCell);
-        notifyCellAdded();
     }
 
-    // helper method to find which cell a point maps to
-    private Cell checkForNewHit(float x, float y) {
 
-        final int rowHit = getRowHit(y);
-        if (rowHit < 0) {
-            return null;
+    private void addCellToPattern(int index, int ordinal, boolean hit) {
+        cellManager.draw(index / gridColumns, index % gridColumns, true);
+        if (patternVerifier != null) {
+            patternVerifier.addCell(index);
         }
-        final int columnHit = getColumnHit(x);
-        if (columnHit < 0) {
-            return null;
+        if (patternMatcher != null) {
+            patternMatcher.advance(index);
         }
-
-        if (cellManager.isDrawn(rowHit, columnHit)) {
-            return null;
+        if (batchStart < 0) {
+            batchStart = ordinal;
+        }
+        notifyCellAdded(index);
+        if (hit && enableHapticFeedback) {
+            performHapticFeedback(
+                    HapticFeedbackConstants.VIRTUAL_KEY,
+                    HapticFeedbackConstants.FLAG_IGNORE_VIEW_SETTING
+                            | HapticFeedbackConstants.FLAG_IGNORE_GLOBAL_SETTING);
         }
-        return cellManager.get(rowHit, columnHit);
     }
 
     /**
-     * Helper method to find the row that y falls into.
-     *
-     * @param y The y coordinate
-     * @return The row that y falls in, or -1 if it falls in no row.
+     * Restart the verifier and the matcher with the whole current pattern.
      */
-    private int getRowHit(float y) {
-
-        final float squareHeight = this.squareHeight;
-        float hitSize = squareHeight * hitFactor;
-
-        float offset = paddingTop + (squareHeight - hitSize) / 2f;
-        for (int i = 0; i < gridRows; i++) {
-
-            final float hitTop = offset + squareHeight * i;
-            if (y >= hitTop && y <= hitTop + hitSize) {
-                return i;
+    private void replayPattern() {
+        if (patternVerifier != null) {
+            patternVerifier.reset();
+        }
+        if (patternMatcher != null) {
+            patternMatcher.reset();
+        }
+        for (int i = 0; i < mPattern.size(); i++) {
+            final int index = mPattern.getIndex(i);
+            if (patternVerifier != null) {
+                patternVerifier.addCell(index);
+            }
+            if (patternMatcher != null) {
+                patternMatcher.advance(index);
             }
         }
-        return -1;
     }
 
-    /**
-     * Helper method to find the column x fallis into.
-     *
-     * @param x The x coordinate.
-     * @return The column that x falls in, or -1 if it falls in no column.
-     */
-    private int getColumnHit(float x) {
-        final float squareWidth = this.squareWidth;
-        float hitSize = squareWidth * hitFactor;
-
-        float offset = paddingLeft + (squareWidth - hitSize) / 2f;
-        for (int i = 0; i < gridColumns; i++) {
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        if (metrics != null) {
+            metrics.onCount(PatternViewMetrics.Counter.INVALIDATION);
+        }
+    }
 
-            final float hitLeft = offset + squareWidth * i;
-            if (x >= hitLeft && x <= hitLeft + hitSize) {
-                return i;
-            }
+    @Override
+    public void invalidate(Rect dirty) {
+        super.invalidate(dirty);
+        if (metrics != null) {
+            metrics.onCount(PatternViewMetrics.Counter.INVALIDATION);
         }
-        return -1;
     }
 
     @Override
@@ -676,38 +1463,49 @@ public class PatternView extends View {
         if (!inputEnabled || !isEnabled()) {
             return false;
         }
+        if (metrics != null) {
+            metrics.onCount(PatternViewMetrics.Counter.TOUCH_EVENT);
+        }
+        if (debugOverlay != null && undrawnEventTime < 0) {
+            undrawnEventTime = event.getEventTime();
+        }
 
         switch (event.getAction()) {
             case MotionEvent.ACTION_DOWN:
                 handleActionDown(event);
-                return true;
+                break;
             case MotionEvent.ACTION_UP:
-                handleActionUp();
-                return true;
+                // samples still waiting for a frame belong to the pattern
+                inputTicker.cancel();
+                processTouchSamples();
+                handleActionUp(event);
+                break;
             case MotionEvent.ACTION_MOVE:
                 handleActionMove(event);
-                return true;
+                break;
             case MotionEvent.ACTION_CANCEL:
             /*
              * Original source check for patternInProgress == true first before
-			 * calling next three lines. But if we do that, there will be
+			 * cancelling the pattern. But if we do that, there will be
 			 * nothing happened when the user taps at empty area and releases
 			 * the finger. We want the pattern to be reset and the message will
 			 * be updated after the user did that.
 			 */
-                patternInProgress = false;
-                resetPattern();
-                notifyPatternCleared();
-
-                if (PROFILE_DRAWING) {
-                    if (drawingProfilingStarted) {
-                        Debug.stopMethodTracing();
-                        drawingProfilingStarted = false;
-                    }
-                }
-                return true;
+                recognizer.cancel();
+                inputTicker.cancel();
+                touchSamples.clear();
+                break;
+            default:
+                return false;
         }
-        return false;
+        if (debugOverlay != null) {
+            final Rect overlayBounds = debugOverlay.getBounds();
+            damageTracker.add(overlayBounds.left, overlayBounds.top, overlayBounds.right, overlayBounds.bottom);
+        }
+        // one invalidation for everything that changed during the event
+        damageTracker.flush(this);
+        notifyCellBatch();
+        return true;
     }
 
     private void handleActionMove(MotionEvent event) {
@@ -715,192 +1513,156 @@ public class PatternView extends View {
         // the device
         // is busy...
         final int historySize = event.getHistorySize();
+        if (debugOverlay != null) {
+            debugOverlay.addSampleCount(historySize + 1);
+        }
         for (int i = 0; i < historySize + 1; i++) {
-            final float x = i < historySize ? event.getHistoricalX(i) : event
-                    .getX();
-            final float y = i < historySize ? event.getHistoricalY(i) : event
-                    .getY();
-            final int patternSizePreHitDetect = mPattern.size();
-            Cell hitCell = detectAndAddHit(x, y);
-            final int patternSize = mPattern.size();
-            if (hitCell != null && patternSize == 1) {
-                patternInProgress = true;
-                notifyPatternStarted();
+            if (touchSamples.isFull()) {
+                processTouchSamples();
             }
-            // note current x and y for rubber banding of in progress patterns
-            final float dx = Math.abs(x - inProgressX);
-            final float dy = Math.abs(y - inProgressY);
-            if (dx + dy > squareWidth * 0.01f) {
-                float oldX = inProgressX;
-                float oldY = inProgressY;
-
-                inProgressX = x;
-                inProgressY = y;
-
-                if (patternInProgress && patternSize > 0) {
-                    final ArrayList<Cell> pattern = mPattern;
-                    final float radius = squareWidth * diameterFactor * 0.5f;
-
-                    final Cell lastCell = pattern.get(patternSize - 1);
-
-                    float startX = getCenterXForColumn(lastCell.getColumn());
-                    float startY = getCenterYForRow(lastCell.getRow());
-
-                    float left;
-                    float top;
-                    float right;
-                    float bottom;
-
-                    final Rect invalidateRect = invalidate;
-
-                    if (startX < x) {
-                        left = startX;
-                        right = x;
-                    } else {
-                        left = x;
-                        right = startX;
-                    }
-
-                    if (startY < y) {
-                        top = startY;
-                        bottom = y;
-                    } else {
-                        top = y;
-                        bottom = startY;
-                    }
-
-                    // Invalidate between the pattern's last cell and the
-                    // current location
-                    invalidateRect.set((int) (left - radius),
-                            (int) (top - radius), (int) (right + radius),
-                            (int) (bottom + radius));
-
-                    if (startX < oldX) {
-                        left = startX;
-                        right = oldX;
-                    } else {
-                        left = oldX;
-                        right = startX;
-                    }
-
-                    if (startY < oldY) {
-                        top = startY;
-                        bottom = oldY;
-                    } else {
-                        top = oldY;
-                        bottom = startY;
-                    }
-
-                    // Invalidate between the pattern's last cell and the
-                    // previous location
-                    invalidateRect.union((int) (left - radius),
-                            (int) (top - radius), (int) (right + radius),
-                            (int) (bottom + radius));
-
-                    // Invalidate between the pattern's new cell and the
-                    // pattern's previous cell
-                    if (hitCell != null) {
-                        startX = getCenterXForColumn(hitCell.getColumn());
-                        startY = getCenterYForRow(hitCell.getRow());
-
-                        if (patternSize >= 2) {
-                            // (re-using hitcell for old cell)
-                            hitCell = pattern.get(patternSize - 1
-                                    - (patternSize - patternSizePreHitDetect));
-                            oldX = getCenterXForColumn(hitCell.getColumn());
-                            oldY = getCenterYForRow(hitCell.getRow());
-
-                            if (startX < oldX) {
-                                left = startX;
-                                right = oldX;
-                            } else {
-                                left = oldX;
-                                right = startX;
-                            }
-
-                            if (startY < oldY) {
-                                top = startY;
-                                bottom = oldY;
-                            } else {
-                                top = oldY;
-                                bottom = startY;
-                            }
-                        } else {
-                            left = right = startX;
-                            top = bottom = startY;
-                        }
-
-                        final float widthOffset = squareWidth / 2f;
-                        final float heightOffset = squareHeight / 2f;
-
-                        invalidateRect.set((int) (left - widthOffset),
-                                (int) (top - heightOffset),
-                                (int) (right + widthOffset),
-                                (int) (bottom + heightOffset));
-                    }
-
-                    invalidate(invalidateRect);
-                } else {
-                    invalidate();
-                }
+            if (i < historySize) {
+                touchSamples.add(event.getHistoricalX(i), event.getHistoricalY(i),
+                        event.getHistoricalEventTime(i));
+            } else {
+                touchSamples.add(event.getX(), event.getY(), event.getEventTime());
             }
         }
-        invalidate();
+        if (frameAlignedInput) {
+            inputTicker.schedule();
+        } else {
+            processTouchSamples();
+        }
     }
 
-    private void handleActionUp() {
-        // report pattern detected
-        if (!mPattern.isEmpty()) {
-            patternInProgress = false;
-            notifyPatternDetected();
-            invalidate();
+    /**
+     * Adds the cells crossed by the queued touch samples, then moves the
+     * rubber band to the last sample, in one pass.
+     */
+    private void processTouchSamples() {
+        if (touchSamples.isEmpty()) {
+            return;
         }
-        if (PROFILE_DRAWING) {
-            if (drawingProfilingStarted) {
-                Debug.stopMethodTracing();
-                drawingProfilingStarted = false;
+        final int patternSizePreHitDetect = mPattern.size();
+        final int sampleCount = touchSamples.size();
+        for (int i = 0; i < sampleCount; i++) {
+            recognizer.move(touchSamples.getX(i), touchSamples.getY(i), touchSamples.getTime(i));
+            if (predictiveRubberBand) {
+                touchPredictor.addSample(touchSamples.getX(i), touchSamples.getY(i), touchSamples.getTime(i));
             }
         }
-    }
+        float x = touchSamples.getX(sampleCount - 1);
+        float y = touchSamples.getY(sampleCount - 1);
+        touchSamples.clear();
+        if (predictiveRubberBand) {
+            // only the drawn end of the rubber band moves ahead, the cells
+            // were hit with the real samples above
+            touchPredictor.predict(getPredictionTime());
+            x = Math.max(0f, Math.min(getWidth(), touchPredictor.getPredictedX()));
+            y = Math.max(0f, Math.min(getHeight(), touchPredictor.getPredictedY()));
+        }
 
-    private void handleActionDown(MotionEvent event) {
-        resetPattern();
-        final float x = event.getX();
-        final float y = event.getY();
-        final Cell hitCell = detectAndAddHit(x, y);
-        if (hitCell != null) {
-            patternInProgress = true;
-            patternDisplayMode = DisplayMode.Correct;
-            notifyPatternStarted();
-        } else {
-            /*
-             * Original source check for patternInProgress == true first before
-			 * calling this block. But if we do that, there will be nothing
-			 * happened when the user taps at empty area and releases the
-			 * finger. We want the pattern to be reset and the message will be
-			 * updated after the user did that.
-			 */
-            patternInProgress = false;
-            notifyPatternCleared();
+        final int patternSize = mPattern.size();
+        // note current x and y for rubber banding of in progress patterns
+        final float oldX = inProgressX;
+        final float oldY = inProgressY;
+        final float dx = Math.abs(x - inProgressX);
+        final float dy = Math.abs(y - inProgressY);
+        if (dx + dy > squareWidth * 0.01f) {
+            inProgressX = x;
+            inProgressY = y;
+
+            if (recognizer.isInProgress() && patternSize > 0) {
+                final float radius = squareWidth * diameterFactor * 0.5f;
+                final float startX = getCenterXForColumn(mPattern.getColumn(patternSize - 1));
+                final float startY = getCenterYForRow(mPattern.getRow(patternSize - 1));
+
+                // between the pattern's last cell and the current location
+                addDamage(startX, startY, x, y, radius, radius);
+                // between the pattern's last cell and the previous location
+                addDamage(startX, startY, oldX, oldY, radius, radius);
+            }
         }
-        if (hitCell != null) {
-            final float startX = getCenterXForColumn(hitCell.getColumn());
-            final float startY = getCenterYForRow(hitCell.getRow());
 
+        if (patternSize > patternSizePreHitDetect) {
             final float widthOffset = squareWidth / 2f;
             final float heightOffset = squareHeight / 2f;
+            if (patternSizePreHitDetect > 0) {
+                // the rubber band that left the pattern's previous cell
+                final float startX = getCenterXForColumn(mPattern.getColumn(patternSizePreHitDetect - 1));
+                final float startY = getCenterYForRow(mPattern.getRow(patternSizePreHitDetect - 1));
+                final float radius = squareWidth * diameterFactor * 0.5f;
+                addDamage(startX, startY, oldX, oldY, radius, radius);
+            }
+            // the new cells and the segments between them, starting
+            // from the pattern's previous cell
+            for (int j = Math.max(patternSizePreHitDetect, 1) - 1; j < patternSize; j++) {
+                final float startX = getCenterXForColumn(mPattern.getColumn(j));
+                final float startY = getCenterYForRow(mPattern.getRow(j));
+                final int next = Math.min(j + 1, patternSize - 1);
+                final float endX = getCenterXForColumn(mPattern.getColumn(next));
+                final float endY = getCenterYForRow(mPattern.getRow(next));
+                addDamage(startX, startY, endX, endY, widthOffset, heightOffset);
+            }
+        }
+    }
+
+    /**
+     * Adds the bounds of a segment, grown by an offset on each side, to the
+     * region that is invalidated at the end of the touch event.
+     */
+    private void addDamage(float x0, float y0, float x1, float y1,
+                           float offsetX, float offsetY) {
+        damageTracker.add((int) (Math.min(x0, x1) - offsetX),
+                (int) (Math.min(y0, y1) - offsetY),
+                (int) (Math.max(x0, x1) + offsetX) + 1,
+                (int) (Math.max(y0, y1) + offsetY) + 1);
+    }
 
-            invalidate((int) (startX - widthOffset),
-                    (int) (startY - heightOffset),
-                    (int) (startX + widthOffset), (int) (startY + heightOffset));
+    /**
+     * @return When the frame drawn next is shown, in the time base of the
+     * touch samples. That is the vsync after the current frame when the
+     * samples are processed on a frame, otherwise the phase of the vsync is
+     * not known and it is a refresh period after the last sample.
+     */
+    private long getPredictionTime() {
+        final long lastTime = touchPredictor.getLastTime();
+        if (inputFrameTimeNanos < 0) {
+            return lastTime + frameIntervalNanos / 1000000;
+        }
+        // frame times and event times are both read from the monotonic clock
+        return Math.max(lastTime, (inputFrameTimeNanos + frameIntervalNanos) / 1000000);
+    }
+
+    private void handleActionUp(MotionEvent event) {
+        // reports the pattern detected
+        recognizer.up(event.getEventTime());
+    }
+
+    private void handleActionDown(MotionEvent event) {
+        inputTicker.cancel();
+        touchSamples.clear();
+        touchPredictor.reset();
+        final float x = event.getX();
+        final float y = event.getY();
+        /*
+         * Original source check for patternInProgress == true first before
+         * clearing the pattern when no cell is hit. But if we do that, there
+         * will be nothing happened when the user taps at empty area and
+         * releases the finger. We want the pattern to be reset and the
+         * message will be updated after the user did that.
+         */
+        recognizer.down(x, y, event.getEventTime());
+        if (!mPattern.isEmpty()) {
+            final float startX = getCenterXForColumn(mPattern.getColumn(0));
+            final float startY = getCenterYForRow(mPattern.getRow(0));
+
+            addDamage(startX, startY, startX, startY, squareWidth / 2f, squareHeight / 2f);
         }
         inProgressX = x;
         inProgressY = y;
-        if (PROFILE_DRAWING) {
-            if (!drawingProfilingStarted) {
-                Debug.startMethodTracing("LockPatternDrawing");
-                drawingProfilingStarted = true;
-            }
+        if (predictiveRubberBand) {
+            frameIntervalNanos = inputTicker.getFrameIntervalNanos();
+            touchPredictor.addSample(x, y, event.getEventTime());
         }
     }
 
@@ -914,43 +1676,16 @@ public class PatternView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        final ArrayList<Cell> pattern = mPattern;
-        final int count = pattern.size();
-
-        if (patternDisplayMode == DisplayMode.Animate) {
-
-            final int oneCycle = (count + 1) * MILLIS_PER_CIRCLE_ANIMATING;
-            final int spotInCycle = (int) (SystemClock.elapsedRealtime() - animatingPeriodStart)
-                    % oneCycle;
-            final int numCircles = spotInCycle / MILLIS_PER_CIRCLE_ANIMATING;
-
-            clearPatternDrawLookup();
-            for (int i = 0; i < numCircles; i++) {
-                final Cell cell = pattern.get(i);
-                cellManager.draw(cell, true);
-            }
-
-            final boolean needToUpdateInProgressPoint = numCircles > 0
-                    && numCircles < count;
-
-            if (needToUpdateInProgressPoint) {
-                final float percentageOfNextCircle = ((float) (spotInCycle % MILLIS_PER_CIRCLE_ANIMATING))
-                        / MILLIS_PER_CIRCLE_ANIMATING;
-
-                final Cell currentCell = pattern.get(numCircles - 1);
-                final float centerX = getCenterXForColumn(currentCell.getColumn());
-                final float centerY = getCenterYForRow(currentCell.getRow());
-
-                final Cell nextCell = pattern.get(numCircles);
-                final float dx = percentageOfNextCircle
-                        * (getCenterXForColumn(nextCell.getColumn()) - centerX);
-                final float dy = percentageOfNextCircle
-                        * (getCenterYForRow(nextCell.getRow()) - centerY);
-                inProgressX = centerX + dx;
-                inProgressY = centerY + dy;
-            }
-            invalidate();
+        final PatternViewMetrics metrics = this.metrics;
+        final DebugOverlay debugOverlay = this.debugOverlay;
+        final long drawStart = metrics != null || debugOverlay != null ? System.nanoTime() : 0;
+        if (!bitmapsLoaded) {
+            // first draw, or drawn while detached, e.g. into a bitmap
+            updateBitmapSize();
+            loadBitmaps();
         }
+        final PatternBuffer pattern = mPattern;
+        final int count = pattern.size();
 
         final float squareWidth = this.squareWidth;
         final float squareHeight = this.squareHeight;
@@ -958,20 +1693,31 @@ public class PatternView extends View {
         float radius = (squareWidth * diameterFactor * 0.5f);
         pathPaint.setStrokeWidth(radius);
 
-        final Path currentPath = this.currentPath;
-        currentPath.rewind();
-
         // draw the circles
-        final int paddingTop = this.paddingTop;
-        final int paddingLeft = this.paddingLeft;
-
-        for (int i = 0; i < gridRows; i++) {
-            float topY = paddingTop + i * squareHeight;
-            for (int j = 0; j < gridColumns; j++) {
-                float leftX = paddingLeft + j * squareWidth;
-                drawCircle(canvas, (int) leftX, (int) topY, cellManager.isDrawn(i, j));
+        final long gridStart = metrics != null ? System.nanoTime() : 0;
+        final boolean anyVisible = updateVisibleCells(canvas);
+        if (largeGridMode) {
+            if (anyVisible) {
+                drawTiledGrid(canvas);
+            }
+        } else if (isGridLayerUsed()) {
+            drawCachedGrid(canvas);
+        } else if (anyVisible) {
+            final int paddingTop = this.paddingTop;
+            final int paddingLeft = this.paddingLeft;
+
+            for (int i = firstVisibleRow; i <= lastVisibleRow; i++) {
+                float topY = paddingTop + i * squareHeight;
+                for (int j = firstVisibleColumn; j <= lastVisibleColumn; j++) {
+                    float leftX = paddingLeft + j * squareWidth;
+                    drawCircle(canvas, (int) leftX, (int) topY, cellManager.isDrawn(i, j));
+                }
             }
         }
+        final long pathStart = metrics != null ? System.nanoTime() : 0;
+        if (metrics != null) {
+            metrics.onTiming(PatternViewMetrics.Timing.DRAW_GRID, pathStart - gridStart);
+        }
 
         // only the last segment of the path should be computed here
         // draw the path of the pattern (unless the user is in progress, and
@@ -983,43 +1729,142 @@ public class PatternView extends View {
         // draw the arrows associated with the path (unless the user is in
         // progress, and
         // we are in stealth mode)
-        boolean oldFlagCircle = (circlePaint.getFlags() & Paint.FILTER_BITMAP_FLAG) != 0;
-        boolean oldFlagDot = (dotPaint.getFlags() & Paint.FILTER_BITMAP_FLAG) != 0;
-        circlePaint.setFilterBitmap(true);
-        dotPaint.setFilterBitmap(true);
-
         if (drawPath) {
-            boolean anyCircles = false;
-            for (int i = 0; i < count; i++) {
-                Cell cell = pattern.get(i);
-
-                // only draw the part of the pattern stored in
-                // the lookup table (this is only different in the case
-                // of animation).
-                if (!cellManager.isDrawn(cell)) {
-                    break;
-                }
-                anyCircles = true;
+            updateCommittedPath();
+            final int cells = committedPathCells;
+            canvas.drawPath(committedPath, pathPaint);
 
-                float centerX = getCenterXForColumn(cell.getColumn());
-                float centerY = getCenterYForRow(cell.getRow());
-                if (i == 0) {
-                    currentPath.moveTo(centerX, centerY);
-                } else {
-                    currentPath.lineTo(centerX, centerY);
+            // add last in progress section
+            if ((recognizer.isInProgress() || patternDisplayMode == DisplayMode.Animate)
+                    && cells > 0 && count > 1) {
+                canvas.drawLine(getCenterXForColumn(pattern.getColumn(cells - 1)),
+                        getCenterYForRow(pattern.getRow(cells - 1)),
+                        inProgressX, inProgressY, pathPaint);
+            }
+        }
+
+        if (metrics != null) {
+            final long drawEnd = System.nanoTime();
+            metrics.onTiming(PatternViewMetrics.Timing.DRAW_PATH, drawEnd - pathStart);
+            metrics.onTiming(PatternViewMetrics.Timing.DRAW, drawEnd - drawStart);
+            metrics.onCount(PatternViewMetrics.Counter.FRAME);
+        }
+        if (debugOverlay != null) {
+            // measured before the overlay, so it does not count itself
+            debugOverlay.addDrawTime(System.nanoTime() - drawStart);
+            if (undrawnEventTime >= 0) {
+                debugOverlay.addLatency(SystemClock.uptimeMillis() - undrawnEventTime);
+                undrawnEventTime = -1;
+            }
+            debugOverlay.draw(canvas);
+        }
+    }
+
+    /**
+     * Draws the unselected grid from the layer, rendering it first if needed,
+     * and only the selected cells on top of it.
+     *
+     * @param canvas
+     */
+    private void drawCachedGrid(Canvas canvas) {
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (!gridLayer.isValid(width, height)) {
+            final Canvas layerCanvas = gridLayer.begin(width, height);
+            for (int i = 0; i < gridRows; i++) {
+                final float topY = paddingTop + i * squareHeight;
+                for (int j = 0; j < gridColumns; j++) {
+                    final float leftX = paddingLeft + j * squareWidth;
+                    drawCircle(layerCanvas, (int) leftX, (int) topY, false);
                 }
             }
+            gridLayer.end();
+            if (metrics != null) {
+                metrics.onCount(PatternViewMetrics.Counter.GRID_LAYER_RENDER);
+            }
+        }
+        gridLayer.draw(canvas);
+        drawSelectedCells(canvas);
+    }
 
-            // add last in progress section
-            if ((patternInProgress || patternDisplayMode == DisplayMode.Animate)
-                    && anyCircles && count > 1) {
-                currentPath.lineTo(inProgressX, inProgressY);
+    /**
+     * Draws the visible unselected cells with one call from the tile,
+     * rendering it first if needed, and only the visible selected cells on
+     * top of it.
+     *
+     * @param canvas
+     */
+    private void drawTiledGrid(Canvas canvas) {
+        // measured as a whole number of pixels in this mode
+        final int tileWidth = (int) squareWidth;
+        final int tileHeight = (int) squareHeight;
+        if (!cellTile.isValid(tileWidth, tileHeight)) {
+            drawCircle(cellTile.begin(tileWidth, tileHeight), 0, 0, false);
+            cellTile.end();
+            if (metrics != null) {
+                metrics.onCount(PatternViewMetrics.Counter.GRID_LAYER_RENDER);
+            }
+        }
+        cellTile.draw(canvas, paddingLeft, paddingTop,
+                firstVisibleRow, firstVisibleColumn, lastVisibleRow, lastVisibleColumn);
+        drawSelectedCells(canvas);
+    }
+
+    /**
+     * Draws the visible selected cells over the unselected grid.
+     *
+     * @param canvas
+     */
+    private void drawSelectedCells(Canvas canvas) {
+        // in stealth mode selected cells look like the unselected ones
+        if ((inStealthMode && patternDisplayMode == DisplayMode.Correct)
+                || (inErrorStealthMode && patternDisplayMode == DisplayMode.Wrong)) {
+            return;
+        }
+        for (int index = cellManager.nextDrawnIndex(0); index >= 0;
+             index = cellManager.nextDrawnIndex(index + 1)) {
+            final int row = index / gridColumns;
+            final int column = index % gridColumns;
+            if (row < firstVisibleRow || row > lastVisibleRow
+                    || column < firstVisibleColumn || column > lastVisibleColumn) {
+                continue;
             }
-            canvas.drawPath(currentPath, pathPaint);
+            final float topY = paddingTop + row * squareHeight;
+            final float leftX = paddingLeft + column * squareWidth;
+            drawCircle(canvas, (int) leftX, (int) topY, true);
         }
+    }
 
-        circlePaint.setFilterBitmap(oldFlagCircle); // restore default flag
-        dotPaint.setFilterBitmap(oldFlagDot); // restore default flag
+    /**
+     * Finds the rows and columns of the cells inside the clip bounds of the
+     * canvas. A circle never leaves its cell, so the other cells are culled.
+     * Canvases without clip bounds, e.g. one without a bitmap that only
+     * records the calls, get every cell of the view.
+     *
+     * @param canvas The canvas being drawn.
+     * @return Whether any cell is visible.
+     */
+    private boolean updateVisibleCells(Canvas canvas) {
+        if (!canvas.getClipBounds(clipBounds)) {
+            clipBounds.set(0, 0, getWidth(), getHeight());
+        }
+        if (squareWidth <= 0 || squareHeight <= 0) {
+            firstVisibleRow = 0;
+            lastVisibleRow = -1;
+            firstVisibleColumn = 0;
+            lastVisibleColumn = -1;
+            return false;
+        }
+        firstVisibleRow = Math.max(0, (int) Math.floor((clipBounds.top - paddingTop) / squareHeight));
+        lastVisibleRow = Math.min(gridRows - 1,
+                (int) Math.floor((clipBounds.bottom - 1 - paddingTop) / squareHeight));
+        firstVisibleColumn = Math.max(0, (int) Math.floor((clipBounds.left - paddingLeft) / squareWidth));
+        lastVisibleColumn = Math.min(gridColumns - 1,
+                (int) Math.floor((clipBounds.right - 1 - paddingLeft) / squareWidth));
+        return firstVisibleRow <= lastVisibleRow && firstVisibleColumn <= lastVisibleColumn;
     }
 
     /**
@@ -1030,53 +1875,43 @@ public class PatternView extends View {
      */
     private void drawCircle(Canvas canvas, int leftX, int topY,
                             boolean partOfPattern) {
-        Bitmap outerCircle;
-        Bitmap innerCircle;
+        final TintedBitmap outerCircle;
+        final TintedBitmap innerCircle;
 
         if (!partOfPattern
                 || (inStealthMode && patternDisplayMode == DisplayMode.Correct)
                 || (inErrorStealthMode && patternDisplayMode == DisplayMode.Wrong)) {
             // unselected circle
-            outerCircle = bitmapCircleDefault;
-            innerCircle = bitmapBtnDefault;
-        } else if (patternInProgress) {
+            outerCircle = tintedCircleDefault;
+            innerCircle = tintedBtnDefault;
+        } else if (recognizer.isInProgress()) {
             // user is in middle of drawing a pattern
-            outerCircle = bitmapCircleSelected;
-            innerCircle = bitmapBtnTouched;
+            outerCircle = tintedCircleSelected;
+            innerCircle = tintedBtnDefault;
         } else if (patternDisplayMode == DisplayMode.Wrong) {
             // the pattern is wrong
-            outerCircle = bitmapCircleRed;
-            innerCircle = bitmapBtnDefault;
+            outerCircle = tintedCircleRed;
+            innerCircle = tintedBtnDefault;
         } else if (patternDisplayMode == DisplayMode.Correct
                 || patternDisplayMode == DisplayMode.Animate) {
             // the pattern is correct
-            outerCircle = bitmapCircleSelected;
-            innerCircle = bitmapBtnDefault;
+            outerCircle = tintedCircleSelected;
+            innerCircle = tintedBtnDefault;
         } else {
             throw new IllegalStateException("unknown display mode "
                     + patternDisplayMode);
         }
 
-        final int width = bitmapWidth;
-        final int height = bitmapHeight;
-
+        // the bitmaps are already scaled to the cell, center them in it
         final float squareWidth = this.squareWidth;
         final float squareHeight = this.squareHeight;
 
-        int offsetX = (int) ((squareWidth - width) / 2f);
-        int offsetY = (int) ((squareHeight - height) / 2f);
-
-        // Allow circles to shrink if the view is too small to hold them.
-        float sx = Math.min(this.squareWidth / bitmapWidth, 1.0f);
-        float sy = Math.min(this.squareHeight / bitmapHeight, 1.0f);
-
-        circleMatrix.setTranslate(leftX + offsetX, topY + offsetY);
-        circleMatrix.preTranslate(bitmapWidth / 2, bitmapHeight / 2);
-        circleMatrix.preScale(sx, sy);
-        circleMatrix.preTranslate(-bitmapWidth / 2, -bitmapHeight / 2);
-
-        canvas.drawBitmap(outerCircle, circleMatrix, circlePaint);
-        canvas.drawBitmap(innerCircle, circleMatrix, dotPaint);
+        outerCircle.draw(canvas,
+                leftX + (int) ((squareWidth - outerCircle.getWidth()) / 2f),
+                topY + (int) ((squareHeight - outerCircle.getHeight()) / 2f));
+        innerCircle.draw(canvas,
+                leftX + (int) ((squareWidth - innerCircle.getWidth()) / 2f),
+                topY + (int) ((squareHeight - innerCircle.getHeight()) / 2f));
     }
 
     @Override
@@ -1093,6 +1928,9 @@ public class PatternView extends View {
         super.onRestoreInstanceState(ss.getSuperState());
         setPattern(DisplayMode.Correct, CellUtils.intArrayToPattern(ss.getSerializedPattern(), cellManager));
         patternDisplayMode = DisplayMode.values()[ss.getDisplayMode()];
+        if (patternDisplayMode == DisplayMode.Animate && !mPattern.isEmpty()) {
+            setDisplayMode(DisplayMode.Animate);
+        }
         inputEnabled = ss.isInputEnabled();
         inStealthMode = ss.isInStealthMode();
         enableHapticFeedback = ss.isTactileFeedbackEnabled();
@@ -1260,6 +2098,40 @@ public class PatternView extends View {
         void onPatternCellAdded();
     }
 
+    /**
+     * The call back interface for every cell added to the pattern.
+     */
+    public interface OnPatternCellListener {
+
+        /**
+         * The user extended the pattern currently being drawn by one cell.
+         *
+         * @param index   The index of the cell, row * columns + column.
+         * @param ordinal The position of the cell in the pattern.
+         * @param pattern The pattern, only valid during the call.
+         */
+        void onPatternCellAdded(int index, int ordinal, ReadOnlyPattern pattern);
+    }
+
+    /**
+     * The call back interface for the cells added to the pattern during one
+     * touch event.
+     */
+    public interface OnPatternCellBatchListener {
+
+        /**
+         * The user extended the pattern currently being drawn by one or more
+         * cells.
+         *
+         * @param firstOrdinal The position of the first added cell in the
+         *                     pattern.
+         * @param count        The number of added cells, they are the last
+         *                     ones of the pattern.
+         * @param pattern      The pattern, only valid during the call.
+         */
+        void onPatternCellsAdded(int firstOrdinal, int count, ReadOnlyPattern pattern);
+    }
+
     /**
      * The call back interface for detecting patterns entered by the user.
      */
@@ -6,21 +6,34 @@ import android.os.Parcelable;
 import com.eftimoff.patternview.utils.CellUtils;
 
 /**
- * Class representing an object in specific position.
+ * Class representing an object in specific position. Immutable, the cells of
+ * a {@link CellTable} are shared by every view of the same size.
  */
 public class Cell implements Parcelable {
 
-    private int row;
-    private int column;
+    private final int row;
+    private final int column;
+    /**
+     * The ID, cached by the cells of a {@link CellTable}.
+     */
+    private final String id;
 
     /**
      * @param row    The row of the cell.
      * @param column The column of the cell.
      */
     public Cell(int row, int column) {
+        this(row, column, null);
+    }
+
+    /**
+     * Constructor called from {@link CellTable} with the pre-encoded ID.
+     */
+    Cell(int row, int column, String id) {
         CellUtils.checkRange(row, column);
         this.row = row;
         this.column = column;
+        this.id = id;
     }
 
     /**
@@ -48,9 +61,10 @@ public class Cell implements Parcelable {
      * @return the ID.
      */
     public String getId() {
-        final String formatRow = String.format("%03d", row);
-        final String formatColumn = String.format("%03d", column);
-        return formatRow + "-" + formatColumn;
+        if (id != null) {
+            return id;
+        }
+        return CellTable.formatId(row, column);
     }
 
 
@@ -78,24 +92,29 @@ public class Cell implements Parcelable {
         parcel.writeInt(getRow());
     }
 
-
+    /**
+     * Cells are immutable since they are shared, so they can no longer be
+     * read into.
+     *
+     * @throws UnsupportedOperationException Always.
+     * @deprecated Read a new cell with {@link #CREATOR} instead.
+     */
+    @Deprecated
     public void readFromParcel(Parcel in) {
-        column = in.readInt();
-        row = in.readInt();
+        throw new UnsupportedOperationException(
+                "Cell is immutable, read a new cell with Cell.CREATOR.createFromParcel(Parcel)");
     }
 
     public static final Parcelable.Creator<Cell> CREATOR = new Parcelable.Creator<Cell>() {
 
         public Cell createFromParcel(Parcel in) {
-            return new Cell(in);
+            final int column = in.readInt();
+            final int row = in.readInt();
+            return new Cell(row, column);
         }
 
         public Cell[] newArray(int size) {
             return new Cell[size];
         }
     };
-
-    private Cell(Parcel in) {
-        readFromParcel(in);
-    }
 }
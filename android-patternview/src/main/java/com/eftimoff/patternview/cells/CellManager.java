@@ -2,18 +2,19 @@ package com.eftimoff.patternview.cells;
 
 import com.eftimoff.patternview.utils.CellUtils;
 
-import java.util.Arrays;
-
 public class CellManager implements Manager<Cell> {
 
     /**
      * Lookup table for the circles of the pattern we are currently drawing.
      * This will be the cells of the complete pattern unless we are animating,
      * in which case we use this to hold the cells we are drawing for the in
-     * progress animation.
+     * progress animation. Cells are indexed by row * columns + column.
+     */
+    private final CellBitSet patternDrawLookup;
+    /**
+     * The cells, shared with every manager of the same size.
      */
-    private boolean[][] patternDrawLookup;
-    private Cell[][] cells;
+    private CellTable cellTable;
     private int rows;
     private int columns;
     private int size;
@@ -23,14 +24,8 @@ public class CellManager implements Manager<Cell> {
         this.rows = rows;
         this.columns = columns;
         this.size = rows * columns;
-        patternDrawLookup = new boolean[rows][columns];
-        cells = new Cell[rows][columns];
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                cells[i][j] = new Cell(i, j);
-            }
-            Arrays.fill(patternDrawLookup[i], false);
-        }
+        patternDrawLookup = new CellBitSet(size);
+        cellTable = CellTable.forSize(rows, columns);
     }
 
     @Override
@@ -44,8 +39,18 @@ public class CellManager implements Manager<Cell> {
     }
 
     @Override
-    public synchronized Cell get(final int row, final int column) {
-        return cells[row][column];
+    public Cell get(final int row, final int column) {
+        if (cellTable == null) {
+            throw new IllegalStateException("the manager is cleared");
+        }
+        return cellTable.get(row, column);
+    }
+
+    /**
+     * @return The shared table of the cells of this manager.
+     */
+    public CellTable getCellTable() {
+        return cellTable;
     }
 
     @Override
@@ -55,37 +60,48 @@ public class CellManager implements Manager<Cell> {
 
     @Override
     public void clear() {
-        cells = new Cell[][]{};
+        cellTable = null;
     }
 
     @Override
     public void draw(Cell cell, final boolean drawn) {
-        final int row = cell.getRow();
-        final int column = cell.getColumn();
-        patternDrawLookup[row][column] = drawn;
+        draw(cell.getRow(), cell.getColumn(), drawn);
     }
 
     @Override
     public void draw(int row, int column, final boolean drawn) {
-        patternDrawLookup[row][column] = drawn;
+        patternDrawLookup.set(indexOf(row, column), drawn);
     }
 
     @Override
     public void clearDrawing() {
-        for (int i = 0; i < rows; i++) {
-            Arrays.fill(patternDrawLookup[i], false);
-        }
+        patternDrawLookup.clear();
     }
 
     @Override
     public boolean isDrawn(int row, int column) {
-        return patternDrawLookup[row][column];
+        return patternDrawLookup.get(indexOf(row, column));
     }
 
     @Override
     public boolean isDrawn(Cell cell) {
-        final int row = cell.getRow();
-        final int column = cell.getColumn();
-        return patternDrawLookup[row][column];
+        return isDrawn(cell.getRow(), cell.getColumn());
+    }
+
+    @Override
+    public int getDrawnCount() {
+        return patternDrawLookup.cardinality();
+    }
+
+    @Override
+    public int nextDrawnIndex(int fromIndex) {
+        return patternDrawLookup.nextSetBit(fromIndex);
+    }
+
+    private int indexOf(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new ArrayIndexOutOfBoundsException("(r=" + row + ",c=" + column + ")");
+        }
+        return row * columns + column;
     }
 }
@@ -0,0 +1,140 @@
+package com.eftimoff.patternview.cells;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable table of the cells of a matrix and their encoded IDs.
+ * <p/>
+ * There is one table per matrix size, shared by every {@link CellManager} with
+ * the same dimensions. Patterns are turned into strings by copying the
+ * pre-encoded IDs, without going through a formatter.
+ */
+public final class CellTable {
+
+    /**
+     * The separator between two cells in a pattern string.
+     */
+    public static final char SEPARATOR = PatternCodec.SEPARATOR;
+
+    private static final Map<Long, CellTable> TABLES = new HashMap<>();
+
+    private final int rows;
+    private final int columns;
+    private final Cell[] cells;
+    private final String[] ids;
+    private final int maxPatternStringLength;
+
+    private CellTable(final int rows, final int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        final int size = rows * columns;
+        cells = new Cell[size];
+        ids = new String[size];
+        int idsLength = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                final String id = formatId(i, j);
+                cells[i * columns + j] = new Cell(i, j, id);
+                ids[i * columns + j] = id;
+                idsLength += id.length();
+            }
+        }
+        maxPatternStringLength = size == 0 ? 0 : idsLength + size - 1;
+    }
+
+    /**
+     * Gets the shared table of a matrix size.
+     *
+     * @param rows    The number of rows.
+     * @param columns The number of columns.
+     * @return The table.
+     */
+    public static CellTable forSize(final int rows, final int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("rows and columns must be positive");
+        }
+        final Long key = ((long) rows << 32) | columns;
+        synchronized (TABLES) {
+            CellTable table = TABLES.get(key);
+            if (table == null) {
+                table = new CellTable(rows, columns);
+                TABLES.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    public Cell get(final int row, final int column) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns) {
+            throw new ArrayIndexOutOfBoundsException("(r=" + row + ",c=" + column + ")");
+        }
+        return cells[row * columns + column];
+    }
+
+    /**
+     * @param index The index of the cell, row * columns + column.
+     * @return The ID of the cell, see {@link Cell#getId()}.
+     */
+    public String getId(final int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return The length of the string of a pattern with every cell.
+     */
+    public int getMaxPatternStringLength() {
+        return maxPatternStringLength;
+    }
+
+    /**
+     * Writes the IDs of the cells of a pattern separated by {@link #SEPARATOR}.
+     *
+     * @param pattern The pattern, of the size of the table.
+     * @param out     Where to write, at least {@link #getMaxPatternStringLength()} long.
+     * @return The number of chars written.
+     */
+    public int writePatternString(final ReadOnlyPattern pattern, final char[] out) {
+        int length = 0;
+        final int size = pattern.size();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out[length++] = SEPARATOR;
+            }
+            final String id = ids[pattern.getIndex(i)];
+            id.getChars(0, id.length(), out, length);
+            length += id.length();
+        }
+        return length;
+    }
+
+    /**
+     * Formats the ID of a cell as row and column padded to three digits,
+     * e.g. "001-002".
+     */
+    static String formatId(final int row, final int column) {
+        final StringBuilder builder = new StringBuilder(7);
+        appendPadded(builder, row);
+        builder.append('-');
+        appendPadded(builder, column);
+        return builder.toString();
+    }
+
+    private static void appendPadded(final StringBuilder builder, final int value) {
+        if (value < 100) {
+            builder.append('0');
+        }
+        if (value < 10) {
+            builder.append('0');
+        }
+        builder.append(value);
+    }
+}
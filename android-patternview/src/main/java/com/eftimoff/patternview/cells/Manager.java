@@ -15,10 +15,24 @@ public interface Manager<T> {
     void draw(T t, final boolean drawn);
 
     void draw(final int row, final int column, final boolean drawn);
-    
+
     void clearDrawing();
 
     boolean isDrawn(final int row, final int column);
 
     boolean isDrawn(T t);
+
+    /**
+     * @return The number of drawn cells.
+     */
+    int getDrawnCount();
+
+    /**
+     * Finds the next drawn cell. Cells are indexed from left to right, top to
+     * bottom, starting by zero.
+     *
+     * @param fromIndex The index to start from.
+     * @return The index of the first drawn cell at or after fromIndex, or -1.
+     */
+    int nextDrawnIndex(final int fromIndex);
 }
@@ -0,0 +1,39 @@
+package com.eftimoff.patternview.cells;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read only {@link java.util.List} view of a {@link PatternBuffer}. The cells
+ * are taken from the {@link CellManager}, so nothing is copied or allocated
+ * when the list is read.
+ */
+public class PatternList extends AbstractList<Cell> implements RandomAccess {
+
+    private final PatternBuffer buffer;
+    private final CellManager cellManager;
+
+    public PatternList(final PatternBuffer buffer, final CellManager cellManager) {
+        this.buffer = buffer;
+        this.cellManager = cellManager;
+    }
+
+    @Override
+    public Cell get(final int location) {
+        return cellManager.get(buffer.getRow(location), buffer.getColumn(location));
+    }
+
+    @Override
+    public int size() {
+        return buffer.size();
+    }
+
+    @Override
+    public boolean contains(final Object object) {
+        if (object instanceof Cell) {
+            final Cell cell = (Cell) object;
+            return buffer.contains(cell.getRow(), cell.getColumn());
+        }
+        return false;
+    }
+}
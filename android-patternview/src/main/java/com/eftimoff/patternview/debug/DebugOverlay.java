@@ -0,0 +1,224 @@
+package com.eftimoff.patternview.debug;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Rolling graphs of the frame time, the touch to draw latency and the samples
+ * per touch event, drawn on top of a view.
+ * <p/>
+ * Every value is kept in a ring of primitives allocated up front, and the
+ * graphs and their labels are drawn from preallocated buffers, so the overlay
+ * does not allocate while it measures.
+ */
+public class DebugOverlay {
+
+    /**
+     * The number of values kept per graph, about two seconds at 60 fps.
+     */
+    public static final int CAPACITY = 120;
+
+    private static final int FRAME_BUDGET_MICROS = 16667;
+    private static final int LATENCY_SCALE_MILLIS = 100;
+    private static final int SAMPLES_SCALE = 16;
+
+    private static final int BACKGROUND_COLOR = 0x99000000;
+    private static final int BUDGET_COLOR = 0xccff5252;
+    private static final int DRAW_COLOR = 0xff69f0ae;
+    private static final int LATENCY_COLOR = 0xffffd740;
+    private static final int SAMPLES_COLOR = 0xff40c4ff;
+
+    private static final char[] DRAW_LABEL = "draw ".toCharArray();
+    private static final char[] LATENCY_LABEL = "latency ".toCharArray();
+    private static final char[] SAMPLES_LABEL = "samples ".toCharArray();
+    private static final char[] MICROS_UNIT = "us".toCharArray();
+    private static final char[] MILLIS_UNIT = "ms".toCharArray();
+    private static final char[] NO_UNIT = new char[0];
+
+    /**
+     * Ring of the last {@link #CAPACITY} values of a graph.
+     */
+    private static final class Series {
+
+        private final int[] values = new int[CAPACITY];
+        private int next;
+        private int size;
+
+        void add(final int value) {
+            values[next] = value;
+            next = (next + 1) % CAPACITY;
+            if (size < CAPACITY) {
+                size++;
+            }
+        }
+
+        /**
+         * @param position 0 for the oldest value.
+         */
+        int get(final int position) {
+            return values[(next - size + position + CAPACITY) % CAPACITY];
+        }
+
+        int last() {
+            return get(size - 1);
+        }
+
+        void clear() {
+            next = 0;
+            size = 0;
+        }
+    }
+
+    private final Series drawTimes = new Series();
+    private final Series latencies = new Series();
+    private final Series sampleCounts = new Series();
+
+    private final Paint backgroundPaint = new Paint();
+    private final Paint budgetPaint = new Paint();
+    private final Paint graphPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float[] lines = new float[(CAPACITY - 1) * 4];
+    private final char[] text = new char[32];
+    private final Rect bounds = new Rect();
+
+    public DebugOverlay() {
+        backgroundPaint.setColor(BACKGROUND_COLOR);
+        budgetPaint.setColor(BUDGET_COLOR);
+        graphPaint.setStyle(Paint.Style.STROKE);
+        textPaint.setColor(0xffffffff);
+    }
+
+    /**
+     * Adds the time a frame took to draw.
+     *
+     * @param nanos The time in nanoseconds.
+     */
+    public void addDrawTime(final long nanos) {
+        drawTimes.add((int) Math.min(Integer.MAX_VALUE, nanos / 1000));
+    }
+
+    /**
+     * Adds the time from a touch event to the frame that showed it.
+     *
+     * @param millis The time in milliseconds.
+     */
+    public void addLatency(final long millis) {
+        latencies.add((int) Math.min(Integer.MAX_VALUE, millis));
+    }
+
+    /**
+     * Adds the number of samples of a touch event, its history included.
+     */
+    public void addSampleCount(final int samples) {
+        sampleCounts.add(samples);
+    }
+
+    /**
+     * Removes every value.
+     */
+    public void clear() {
+        drawTimes.clear();
+        latencies.clear();
+        sampleCounts.clear();
+    }
+
+    /**
+     * Places the overlay across the top of a view.
+     *
+     * @param width  The width of the view.
+     * @param height The height of the view.
+     */
+    public void setSize(final int width, final int height) {
+        bounds.set(0, 0, width, height / 4);
+        textPaint.setTextSize(Math.max(1, bounds.height() / 9));
+        graphPaint.setStrokeWidth(Math.max(1, bounds.height() / 60));
+    }
+
+    /**
+     * @return The region the overlay is drawn in, to invalidate it.
+     */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public void draw(final Canvas canvas) {
+        if (bounds.isEmpty()) {
+            return;
+        }
+        canvas.drawRect(bounds, backgroundPaint);
+        final float stripHeight = bounds.height() / 3f;
+        float top = bounds.top;
+        drawSeries(canvas, drawTimes, 2 * FRAME_BUDGET_MICROS, FRAME_BUDGET_MICROS,
+                DRAW_COLOR, DRAW_LABEL, MICROS_UNIT, top, top + stripHeight);
+        top += stripHeight;
+        drawSeries(canvas, latencies, LATENCY_SCALE_MILLIS, FRAME_BUDGET_MICROS / 1000,
+                LATENCY_COLOR, LATENCY_LABEL, MILLIS_UNIT, top, top + stripHeight);
+        top += stripHeight;
+        drawSeries(canvas, sampleCounts, SAMPLES_SCALE, -1,
+                SAMPLES_COLOR, SAMPLES_LABEL, NO_UNIT, top, top + stripHeight);
+    }
+
+    /**
+     * Draws a graph in a strip of the overlay, newest value on the right.
+     *
+     * @param scale  The value at the top of the strip, higher values are
+     *               clamped.
+     * @param budget The value a reference line is drawn at, -1 for none.
+     */
+    private void drawSeries(final Canvas canvas, final Series series, final int scale, final int budget,
+                            final int color, final char[] label, final char[] unit,
+                            final float top, final float bottom) {
+        final float height = bottom - top;
+        if (budget >= 0) {
+            final float y = bottom - height * budget / scale;
+            canvas.drawLine(bounds.left, y, bounds.right, y, budgetPaint);
+        }
+        final int size = series.size;
+        if (size > 1) {
+            final float step = bounds.width() / (float) (CAPACITY - 1);
+            final float right = bounds.right;
+            int count = 0;
+            float lastX = right - (size - 1) * step;
+            float lastY = bottom - height * Math.min(series.get(0), scale) / scale;
+            for (int i = 1; i < size; i++) {
+                final float x = right - (size - 1 - i) * step;
+                final float y = bottom - height * Math.min(series.get(i), scale) / scale;
+                lines[count++] = lastX;
+                lines[count++] = lastY;
+                lines[count++] = x;
+                lines[count++] = y;
+                lastX = x;
+                lastY = y;
+            }
+            graphPaint.setColor(color);
+            canvas.drawLines(lines, 0, count, graphPaint);
+        }
+        if (size > 0) {
+            final int length = writeLabel(label, series.last(), unit);
+            canvas.drawText(text, 0, length, bounds.left + height / 8, top + height / 3, textPaint);
+        }
+    }
+
+    /**
+     * Writes a label, a value and a unit into {@link #text}.
+     *
+     * @return The number of chars written.
+     */
+    private int writeLabel(final char[] label, final int value, final char[] unit) {
+        System.arraycopy(label, 0, text, 0, label.length);
+        int length = label.length;
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int rest = value;
+        for (int i = length + digits - 1; i >= length; i--) {
+            text[i] = (char) ('0' + rest % 10);
+            rest /= 10;
+        }
+        length += digits;
+        System.arraycopy(unit, 0, text, length, unit.length);
+        return length + unit.length;
+    }
+}
@@ -0,0 +1,318 @@
+package com.eftimoff.patternview.graphics;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process wide cache of decoded bitmaps shared by all pattern views.
+ * <p/>
+ * Bitmaps are keyed by resource id, target size and config, tinted bitmaps by
+ * resource id, target size and color, so views with the same colors share
+ * them. Both are reference counted: every {@link #acquire} and
+ * {@link #acquireTinted} must be matched by a {@code release}.
+ * Bitmaps that are still referenced are never evicted. Released bitmaps are
+ * kept in least recently used order until their total size goes over
+ * {@link #getMaxSize()}, then they are recycled.
+ */
+public final class BitmapCache {
+
+    /**
+     * Default number of bytes of released bitmaps to keep around.
+     */
+    private static final int DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private static BitmapCache instance;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The entries by the {@link Bitmap} or {@link TintedBitmap} handed out.
+     */
+    private final IdentityHashMap<Object, Entry> entriesByValue = new IdentityHashMap<>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+    /**
+     * The number of bytes of the released bitmaps that are still cached.
+     */
+    private int releasedSize;
+
+    private BitmapCache() {
+
+    }
+
+    public static synchronized BitmapCache getInstance() {
+        if (instance == null) {
+            instance = new BitmapCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets a bitmap from the cache, decoding it if needed. The bitmap is
+     * decoded with the biggest power of two sample size that keeps its larger
+     * side at least targetSize pixels, and then scaled once so that its larger
+     * side is exactly targetSize pixels. It can be drawn without scaling.
+     *
+     * @param resources  The resources to decode from.
+     * @param resId      The id of the drawable.
+     * @param targetSize The size in pixels the bitmap will be drawn at, or 0
+     *                   for the size of the resource.
+     * @param config     The config to decode to.
+     * @return The bitmap. Must be given back with {@link #release(Bitmap)}.
+     */
+    public synchronized Bitmap acquire(final Resources resources, final int resId,
+                                       final int targetSize, final Bitmap.Config config) {
+        final Key key = new Key(resId, targetSize, config, 0);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Bitmap bitmap = decode(resources, resId, targetSize, config);
+            if (bitmap == null) {
+                throw new IllegalArgumentException("resource " + resId + " is not a bitmap");
+            }
+            entry = new Entry(bitmap, bitmap);
+            put(key, entry);
+        } else if (entry.references == 0) {
+            releasedSize -= entry.size;
+        }
+        entry.references++;
+        return entry.bitmap;
+    }
+
+    /**
+     * Reads the size of a drawable without decoding its pixels.
+     *
+     * @param resources The resources to decode from.
+     * @param resId     The id of the drawable.
+     * @return The larger side in pixels of the drawable decoded for the
+     * density of the screen, as {@link #acquire} with a target size of 0
+     * returns it.
+     */
+    public static int getSourceSize(final Resources resources, final int resId) {
+        final BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        bounds.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, bounds);
+        // decodeResource scales from the density of the drawable folder
+        // to the density of the screen
+        float densityScale = 1f;
+        if (bounds.inDensity > 0 && bounds.inTargetDensity > 0) {
+            densityScale = bounds.inTargetDensity / (float) bounds.inDensity;
+        }
+        return Math.round(Math.max(bounds.outWidth, bounds.outHeight) * densityScale);
+    }
+
+    /**
+     * Gets a bitmap with a color multiplied into it from the cache, tinting it
+     * if needed. The source is decoded like {@link #acquire} does, and is only
+     * kept by the cache while it fits in {@link #getMaxSize()}.
+     *
+     * @param resources  The resources to decode from.
+     * @param resId      The id of the drawable.
+     * @param targetSize The size in pixels the bitmap will be drawn at, or 0
+     *                   for the size of the resource.
+     * @param color      The color to multiply into the bitmap.
+     * @return The tinted bitmap. Must be given back with
+     * {@link #release(TintedBitmap)}.
+     */
+    public synchronized TintedBitmap acquireTinted(final Resources resources, final int resId,
+                                                   final int targetSize, final int color) {
+        final Key key = new Key(resId, targetSize, null, color);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            final Bitmap source = acquire(resources, resId, targetSize, Bitmap.Config.ARGB_8888);
+            final TintedBitmap tinted;
+            try {
+                tinted = TintedBitmap.bake(source, color);
+            } finally {
+                release(source);
+            }
+            entry = new Entry(tinted, tinted.getBitmap());
+            put(key, entry);
+        } else if (entry.references == 0) {
+            releasedSize -= entry.size;
+        }
+        entry.references++;
+        return (TintedBitmap) entry.value;
+    }
+
+    /**
+     * Gives back a bitmap taken with {@link #acquire}.
+     *
+     * @param bitmap The bitmap. Bitmaps that are not from the cache are ignored.
+     */
+    public synchronized void release(final Bitmap bitmap) {
+        releaseValue(bitmap);
+    }
+
+    /**
+     * Gives back a tinted bitmap taken with {@link #acquireTinted}.
+     *
+     * @param tinted The tinted bitmap. Ones that are not from the cache are
+     *               ignored.
+     */
+    public synchronized void release(final TintedBitmap tinted) {
+        releaseValue(tinted);
+    }
+
+    private void put(final Key key, final Entry entry) {
+        entries.put(key, entry);
+        entriesByValue.put(entry.value, entry);
+    }
+
+    private void releaseValue(final Object value) {
+        final Entry entry = entriesByValue.get(value);
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            releasedSize += entry.size;
+            trimToSize(maxSize);
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets how many bytes of released bitmaps are kept for reuse.
+     *
+     * @param maxSize The size in bytes.
+     */
+    public synchronized void setMaxSize(final int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Recycles all bitmaps that are not referenced any more.
+     */
+    public synchronized void evictAll() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(final int size) {
+        final Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (releasedSize > size && iterator.hasNext()) {
+            final Entry entry = iterator.next().getValue();
+            if (entry.references == 0) {
+                iterator.remove();
+                entriesByValue.remove(entry.value);
+                releasedSize -= entry.size;
+                entry.bitmap.recycle();
+            }
+        }
+    }
+
+    private static Bitmap decode(final Resources resources, final int resId,
+                                 final int targetSize, final Bitmap.Config config) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = config;
+        if (targetSize > 0) {
+            // the density scaling is applied after sampling
+            final float size = getSourceSize(resources, resId);
+            int sampleSize = 1;
+            while (size / (sampleSize * 2) >= targetSize) {
+                sampleSize *= 2;
+            }
+            options.inSampleSize = sampleSize;
+        }
+        final Bitmap bitmap = BitmapFactory.decodeResource(resources, resId, options);
+        if (bitmap == null || targetSize <= 0) {
+            return bitmap;
+        }
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        if (Math.max(width, height) == targetSize) {
+            return bitmap;
+        }
+        final float scale = targetSize / (float) Math.max(width, height);
+        final Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(width * scale)),
+                Math.max(1, Math.round(height * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    private static final class Key {
+
+        private final int resId;
+        private final int targetSize;
+        /**
+         * The config of a decoded bitmap, null for a tinted one.
+         */
+        private final Bitmap.Config config;
+        /**
+         * The color of a tinted bitmap.
+         */
+        private final int color;
+
+        private Key(final int resId, final int targetSize, final Bitmap.Config config, final int color) {
+            this.resId = resId;
+            this.targetSize = targetSize;
+            this.config = config;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof Key) {
+                final Key key = (Key) object;
+                return resId == key.resId && targetSize == key.targetSize && config == key.config
+                        && color == key.color;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + targetSize;
+            result = 31 * result + (config != null ? config.hashCode() : 0);
+            result = 31 * result + color;
+            return result;
+        }
+    }
+
+    private static final class Entry {
+
+        /**
+         * The {@link Bitmap} or {@link TintedBitmap} handed out.
+         */
+        private final Object value;
+        /**
+         * The bitmap that holds the pixels of the value.
+         */
+        private final Bitmap bitmap;
+        private final int size;
+        private int references;
+
+        private Entry(final Object value, final Bitmap bitmap) {
+            this.value = value;
+            this.bitmap = bitmap;
+            this.size = sizeOf(bitmap);
+        }
+    }
+
+    /**
+     * @return The size in bytes of the pixels of a bitmap. Its config is null
+     * when it is not one of the public ones, those are counted as 4 bytes per
+     * pixel.
+     */
+    private static int sizeOf(final Bitmap bitmap) {
+        if (bitmap.getConfig() == null) {
+            return bitmap.getWidth() * bitmap.getHeight() * 4;
+        }
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+}
@@ -0,0 +1,117 @@
+package com.eftimoff.patternview.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/**
+ * Offscreen bitmap of a single cell, repeated over a rectangle of cells by a
+ * shader, so that any number of identical cells is drawn with one call.
+ * <p/>
+ * Unlike {@link GridLayer} it only costs a bitmap of the size of a cell.
+ * The cells must be a whole number of pixels, the size of the tile, so that
+ * it is repeated pixel for pixel and never filtered. Render into it between
+ * {@link #begin(int, int)} and {@link #end()}, then draw it with
+ * {@link #draw(Canvas, int, int, int, int, int, int)} until
+ * {@link #invalidate()} is called.
+ */
+public class CellTile {
+
+    private Bitmap bitmap;
+    private final Canvas canvas = new Canvas();
+    private final Paint paint = new Paint();
+    private final Matrix matrix = new Matrix();
+    /**
+     * The grid origin the shader is translated to, the local matrix is only
+     * set again when it moves.
+     */
+    private int originLeft;
+    private int originTop;
+    private boolean valid;
+
+    /**
+     * @return Whether the tile holds an up to date rendering of this size.
+     */
+    public boolean isValid(final int width, final int height) {
+        return valid && bitmap != null
+                && bitmap.getWidth() == width && bitmap.getHeight() == height;
+    }
+
+    /**
+     * Clears the tile, resizing it if needed.
+     *
+     * @return The canvas to render the cell with, its origin at the top left
+     * corner of the cell.
+     */
+    public Canvas begin(final int width, final int height) {
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            recycle();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            canvas.setBitmap(bitmap);
+            paint.setShader(new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT));
+            originLeft = 0;
+            originTop = 0;
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        valid = false;
+        return canvas;
+    }
+
+    /**
+     * Marks the rendering started with {@link #begin(int, int)} as complete.
+     */
+    public void end() {
+        valid = true;
+    }
+
+    /**
+     * Marks the tile as out of date, it will be rendered again.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Draws the cells of a range of rows and columns of a grid whose cells
+     * are the size of the tile.
+     *
+     * @param target      The canvas to draw into.
+     * @param left        The x coordinate of the left edge of the grid.
+     * @param top         The y coordinate of the top edge of the grid.
+     * @param firstRow    The first row to draw.
+     * @param firstColumn The first column to draw.
+     * @param lastRow     The last row to draw.
+     * @param lastColumn  The last column to draw.
+     */
+    public void draw(final Canvas target, final int left, final int top,
+                     final int firstRow, final int firstColumn, final int lastRow, final int lastColumn) {
+        if (left != originLeft || top != originTop) {
+            matrix.setTranslate(left, top);
+            paint.getShader().setLocalMatrix(matrix);
+            originLeft = left;
+            originTop = top;
+        }
+        final int cellWidth = bitmap.getWidth();
+        final int cellHeight = bitmap.getHeight();
+        target.drawRect(left + firstColumn * cellWidth, top + firstRow * cellHeight,
+                left + (lastColumn + 1) * cellWidth, top + (lastRow + 1) * cellHeight, paint);
+    }
+
+    /**
+     * Frees the bitmap of the tile.
+     */
+    public void recycle() {
+        valid = false;
+        if (bitmap != null) {
+            paint.setShader(null);
+            canvas.setBitmap(null);
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
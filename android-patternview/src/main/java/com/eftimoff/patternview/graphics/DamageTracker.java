@@ -0,0 +1,85 @@
+package com.eftimoff.patternview.graphics;
+
+import android.graphics.Rect;
+import android.view.View;
+
+/**
+ * Collects the regions of a view that need to be drawn again and invalidates
+ * their union with a single call.
+ */
+public class DamageTracker {
+
+    /**
+     * Hook reporting every invalidation, e.g. to check the overdraw in tests.
+     */
+    public interface OnDamageListener {
+
+        /**
+         * The view was invalidated.
+         *
+         * @param dirty The invalidated region, the whole view when the whole
+         *              view was invalidated. Only valid during the call.
+         */
+        void onDamage(Rect dirty);
+    }
+
+    private final Rect damage = new Rect();
+    private final Rect reported = new Rect();
+    private boolean empty = true;
+    private boolean full;
+    private OnDamageListener onDamageListener;
+
+    public void setOnDamageListener(OnDamageListener onDamageListener) {
+        this.onDamageListener = onDamageListener;
+    }
+
+    /**
+     * Adds a region that needs to be drawn again.
+     */
+    public void add(final int left, final int top, final int right, final int bottom) {
+        if (full || left >= right || top >= bottom) {
+            return;
+        }
+        if (empty) {
+            damage.set(left, top, right, bottom);
+            empty = false;
+        } else {
+            damage.union(left, top, right, bottom);
+        }
+    }
+
+    /**
+     * Marks the whole view as needing to be drawn again.
+     */
+    public void addFull() {
+        full = true;
+        empty = false;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Invalidates everything added since the last flush, if anything.
+     *
+     * @param view The view to invalidate.
+     */
+    public void flush(final View view) {
+        if (empty) {
+            return;
+        }
+        if (full) {
+            view.invalidate();
+            reported.set(0, 0, view.getWidth(), view.getHeight());
+        } else {
+            view.invalidate(damage);
+            reported.set(damage);
+        }
+        empty = true;
+        full = false;
+        if (onDamageListener != null) {
+            onDamageListener.onDamage(reported);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.eftimoff.patternview.graphics;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+ * Runs a callback on the next display frame, or a while after it.
+ * <p/>
+ * Uses {@link Choreographer} frame callbacks on API 16 and above, so the
+ * callback is aligned with vsync, and falls back to posting on the view about
+ * every 16ms on older versions. At most one callback is scheduled at a time.
+ */
+public class FrameTicker {
+
+    /**
+     * The call back interface for display frames.
+     */
+    public interface Callback {
+
+        /**
+         * A frame started.
+         *
+         * @param frameTimeNanos The time the frame started, in the
+         *                       {@link System#nanoTime()} time base.
+         */
+        void onFrame(long frameTimeNanos);
+    }
+
+    /**
+     * Frame interval assumed when there is no {@link Choreographer}.
+     */
+    private static final long FALLBACK_FRAME_MILLIS = 16;
+    /**
+     * Frame interval assumed when the refresh rate of the display is not
+     * known, 60 Hz.
+     */
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16666667;
+
+    private final View view;
+    private final Callback callback;
+    private final ChoreographerFrames choreographerFrames;
+    private boolean scheduled;
+
+    private final Runnable fallbackFrame = new Runnable() {
+
+        @Override
+        public void run() {
+            dispatchFrame(System.nanoTime());
+        }
+    };
+
+    public FrameTicker(final View view, final Callback callback) {
+        this.view = view;
+        this.callback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            choreographerFrames = new ChoreographerFrames(this);
+        } else {
+            choreographerFrames = null;
+        }
+    }
+
+    /**
+     * Schedules the callback for the next frame, unless it is already
+     * scheduled.
+     */
+    public void schedule() {
+        schedule(0);
+    }
+
+    /**
+     * Schedules the callback for the first frame after a delay, unless it is
+     * already scheduled.
+     *
+     * @param delayMillis The delay in milliseconds, 0 for the next frame.
+     */
+    public void schedule(final long delayMillis) {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        if (choreographerFrames != null) {
+            choreographerFrames.post(delayMillis);
+        } else {
+            view.postDelayed(fallbackFrame, Math.max(delayMillis, FALLBACK_FRAME_MILLIS));
+        }
+    }
+
+    /**
+     * Removes the scheduled callback, if any.
+     */
+    public void cancel() {
+        if (!scheduled) {
+            return;
+        }
+        scheduled = false;
+        if (choreographerFrames != null) {
+            choreographerFrames.remove();
+        } else {
+            view.removeCallbacks(fallbackFrame);
+        }
+    }
+
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    /**
+     * @return The refresh period of the display of the view, or of the
+     * default display when the view is not attached, in nanoseconds.
+     */
+    public long getFrameIntervalNanos() {
+        Display display = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            display = view.getDisplay();
+        }
+        if (display == null) {
+            final WindowManager windowManager =
+                    (WindowManager) view.getContext().getSystemService(Context.WINDOW_SERVICE);
+            display = windowManager != null ? windowManager.getDefaultDisplay() : null;
+        }
+        final float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        // some devices report 0 or nonsense rates
+        if (refreshRate < 10f) {
+            return DEFAULT_FRAME_INTERVAL_NANOS;
+        }
+        return (long) (1000000000 / refreshRate);
+    }
+
+    private void dispatchFrame(final long frameTimeNanos) {
+        if (!scheduled) {
+            return;
+        }
+        scheduled = false;
+        callback.onFrame(frameTimeNanos);
+    }
+
+    /**
+     * Kept in its own class so that {@link Choreographer} is only loaded on
+     * versions that have it.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerFrames implements Choreographer.FrameCallback {
+
+        private final FrameTicker ticker;
+
+        private ChoreographerFrames(final FrameTicker ticker) {
+            this.ticker = ticker;
+        }
+
+        private void post(final long delayMillis) {
+            if (delayMillis > 0) {
+                Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+            } else {
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        private void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(final long frameTimeNanos) {
+            ticker.dispatchFrame(frameTimeNanos);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.eftimoff.patternview.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * Offscreen bitmap holding the parts of the view that rarely change, so that
+ * they can be drawn with a single call.
+ * <p/>
+ * Render into it between {@link #begin(int, int)} and {@link #end()}, then
+ * draw it with {@link #draw(Canvas)} until {@link #invalidate()} is called.
+ */
+public class GridLayer {
+
+    private Bitmap bitmap;
+    private final Canvas canvas = new Canvas();
+    private boolean valid;
+
+    /**
+     * @return Whether the layer holds an up to date rendering of this size.
+     */
+    public boolean isValid(final int width, final int height) {
+        return valid && bitmap != null
+                && bitmap.getWidth() == width && bitmap.getHeight() == height;
+    }
+
+    /**
+     * Clears the layer, resizing it if needed.
+     *
+     * @return The canvas to render the layer with.
+     */
+    public Canvas begin(final int width, final int height) {
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+            recycle();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            canvas.setBitmap(bitmap);
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        valid = false;
+        return canvas;
+    }
+
+    /**
+     * Marks the rendering started with {@link #begin(int, int)} as complete.
+     */
+    public void end() {
+        valid = true;
+    }
+
+    /**
+     * Marks the layer as out of date, it will be rendered again.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    public void draw(final Canvas target) {
+        target.drawBitmap(bitmap, 0, 0, null);
+    }
+
+    /**
+     * Frees the bitmap of the layer.
+     */
+    public void recycle() {
+        valid = false;
+        if (bitmap != null) {
+            canvas.setBitmap(null);
+            bitmap.recycle();
+            bitmap = null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.eftimoff.patternview.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+/**
+ * A bitmap with a color multiplied into it once, so that it can be drawn
+ * without a color filter.
+ * <p/>
+ * When every visible pixel of the source has the same color, which is the case
+ * for the bundled circles and dots, only the alpha channel is kept as an
+ * ALPHA_8 mask (a quarter of the memory) and it is drawn with the multiplied
+ * color as the paint color. Otherwise an ARGB_8888 copy of the source with the
+ * color multiplied in is kept.
+ * <p/>
+ * Tinted bitmaps are shared through {@link BitmapCache#acquireTinted}, so they
+ * never change once baked.
+ */
+public final class TintedBitmap {
+
+    /**
+     * Pixels with less alpha than this are not checked for the color.
+     */
+    private static final int MIN_ALPHA = 32;
+    /**
+     * How much a channel may differ from the color of the source, scaling
+     * rounds the colors of the edges.
+     */
+    private static final int COLOR_TOLERANCE = 3;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Bitmap bitmap;
+
+    private TintedBitmap(final Bitmap bitmap, final int paintColor) {
+        this.bitmap = bitmap;
+        paint.setColor(paintColor);
+    }
+
+    /**
+     * Multiplies a color into a bitmap, like a
+     * {@link PorterDuff.Mode#MULTIPLY} color filter would.
+     *
+     * @param source The bitmap. It is not changed or kept.
+     * @param color  The color.
+     * @return The tinted bitmap.
+     */
+    static TintedBitmap bake(final Bitmap source, final int color) {
+        final int sourceColor = findSingleColor(source);
+        if (sourceColor != Color.TRANSPARENT) {
+            return new TintedBitmap(source.extractAlpha(), Color.argb(Color.alpha(color),
+                    Color.red(color) * Color.red(sourceColor) / 255,
+                    Color.green(color) * Color.green(sourceColor) / 255,
+                    Color.blue(color) * Color.blue(sourceColor) / 255));
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(source.getWidth(), source.getHeight(), Bitmap.Config.ARGB_8888);
+        final Paint tintPaint = new Paint();
+        tintPaint.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.MULTIPLY));
+        new Canvas(bitmap).drawBitmap(source, 0, 0, tintPaint);
+        return new TintedBitmap(bitmap, Color.BLACK);
+    }
+
+    /**
+     * Draws the bitmap unscaled.
+     */
+    public void draw(final Canvas canvas, final float left, final float top) {
+        canvas.drawBitmap(bitmap, left, top, paint);
+    }
+
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return The opaque color of all visible pixels of the bitmap, or
+     * {@link Color#TRANSPARENT} if they are not all of the same color.
+     */
+    private static int findSingleColor(final Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        // read at once, the bitmaps are cell sized and this is done when they are loaded
+        final int[] pixels = new int[width * height];
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        int color = Color.TRANSPARENT;
+        for (final int pixel : pixels) {
+            if (Color.alpha(pixel) < MIN_ALPHA) {
+                continue;
+            }
+            if (color == Color.TRANSPARENT) {
+                color = pixel | 0xff000000;
+            } else if (Math.abs(Color.red(pixel) - Color.red(color)) > COLOR_TOLERANCE
+                    || Math.abs(Color.green(pixel) - Color.green(color)) > COLOR_TOLERANCE
+                    || Math.abs(Color.blue(pixel) - Color.blue(color)) > COLOR_TOLERANCE) {
+                return Color.TRANSPARENT;
+            }
+        }
+        return color;
+    }
+}
@@ -2,6 +2,7 @@ package com.eftimoff.patternview.utils;
 
 import com.eftimoff.patternview.cells.Cell;
 import com.eftimoff.patternview.cells.CellManager;
+import com.eftimoff.patternview.cells.PatternCodec;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,25 +30,20 @@ public class CellUtils {
     }
 
     /**
-     * Converts a string to a pattern
+     * Converts a string to a pattern. Repeated cells are kept, as they
+     * always were, even though a pattern drawn on the view never repeats
+     * one.
      *
      * @param string
      * @return
      */
     public static List<Cell> stringToPattern(final String string, final CellManager cellManager) {
-        final List<Cell> result = new ArrayList<>();
-
-        if(string.isEmpty()) {
-            return result;
-        }
-
-        final String[] allCells = string.split("&");
-        for (String allCell : allCells) {
-            final String[] rowAndColumn = allCell.split("-");
-            final int row = Integer.valueOf(rowAndColumn[0]);
-            final int column = Integer.valueOf(rowAndColumn[1]);
-            final Cell cell = cellManager.get(row, column);
-            result.add(cell);
+        final int[] indices = new int[PatternCodec.countStringCells(string)];
+        final int columns = cellManager.getColumnCount();
+        final int size = PatternCodec.parseStringIndices(string, cellManager.getRowCount(), columns, indices);
+        final List<Cell> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(cellManager.get(indices[i] / columns, indices[i] % columns));
         }
         return result;
     }
@@ -0,0 +1,64 @@
+package com.eftimoff.patternview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.mylibrary.R;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowBitmapFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The bitmaps of a cell are scaled together, so that they keep their sizes
+ * relative to each other.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PatternViewBitmapSizeTest {
+
+    private static final int CELL_SIZE = 60;
+
+    @Test
+    public void scalesTheBitmapsByTheFactorOfTheLargestOne() {
+        // a dot half the size of the circles, both twice the cell size
+        ShadowBitmapFactory.provideWidthAndHeightHints(R.drawable.pattern_btn_touched, 60, 60);
+        ShadowBitmapFactory.provideWidthAndHeightHints(R.drawable.pattern_button_untouched, 120, 120);
+        ShadowBitmapFactory.provideWidthAndHeightHints(R.drawable.pattern_circle_white, 120, 120);
+        ShadowBitmapFactory.provideWidthAndHeightHints(R.drawable.pattern_circle_blue, 120, 120);
+        final PatternView view = new PatternView(RuntimeEnvironment.application);
+        view.measure(View.MeasureSpec.makeMeasureSpec(3 * CELL_SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(3 * CELL_SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+
+        final List<float[]> drawn = new ArrayList<>();
+        view.onDraw(new Canvas() {
+            @Override
+            public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+                drawn.add(new float[]{bitmap.getWidth(), bitmap.getHeight(), left, top});
+            }
+        });
+
+        assertEquals(2 * 9, drawn.size());
+        // the first cell: the circle fills it, the dot is centered in it
+        assertBitmap(new float[]{60, 60, 0, 0}, drawn.get(0));
+        assertBitmap(new float[]{30, 30, 15, 15}, drawn.get(1));
+    }
+
+    private static void assertBitmap(float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], 0f);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.eftimoff.patternview;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.patternview.cells.ReadOnlyPattern;
+import com.eftimoff.patternview.debug.FrameReport;
+import com.eftimoff.patternview.debug.GestureScript;
+import com.eftimoff.patternview.debug.TouchReplayHarness;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a gesture on a 3x3 view and checks the cost of every frame.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PatternViewFrameBudgetTest {
+
+    private static final int SIZE = 600;
+    private static final int CELLS = 9;
+    /**
+     * The replays of which the cheapest frames are kept.
+     */
+    private static final int REPLAYS = 5;
+    /**
+     * The view allocates nothing per frame, what is counted comes from the
+     * shadows. On a move frame that is 24 bytes when a segment is added to a
+     * path.
+     */
+    private static final long MAX_MOVE_ALLOCATED_BYTES = 24;
+    /**
+     * The shadows allocate 416 bytes on the down and up frames.
+     */
+    private static final long MAX_ALLOCATED_BYTES = 512;
+
+    /**
+     * Top row, diagonal back to the bottom left, bottom row, at 120 Hz.
+     */
+    private static GestureScript newScript() {
+        return new GestureScript(120)
+                .down(100, 100)
+                .lineTo(500, 100, 100)
+                .lineTo(100, 500, 150)
+                .lineTo(500, 500, 100);
+    }
+
+    @Test
+    public void drawsAGestureWithinTheBudget() {
+        final PatternView view = new PatternView(RuntimeEnvironment.application);
+        final TouchReplayHarness harness = new TouchReplayHarness(view, SIZE, SIZE);
+        final GestureScript script = newScript();
+        // the first replay loads the bitmaps and grows the buffers
+        harness.replay(script);
+
+        final FrameReport report = harness.replay(script, REPLAYS);
+        final int frames = TouchReplayHarness.getFrameCount(script);
+        assertEquals(frames, report.getFrameCount());
+        assertArrayEquals(new int[]{0, 1, 2, 4, 6, 7, 8}, indices(view.getPatternCells()));
+        for (int i = 0; i < frames; i++) {
+            // two bitmaps per cell and the path, the rubber band from the
+            // second cell, reached in the third frame, until the finger is up
+            final int rubberBand = i >= 2 && i < frames - 1 ? 1 : 0;
+            assertEquals(report.toString(), 2 * CELLS + 1 + rubberBand, report.getDrawCalls(i));
+            if (i > 0 && i < frames - 1) {
+                assertTrue("frame " + i + ": " + report.getAllocatedBytes(i) + " bytes allocated",
+                        report.getAllocatedBytes(i) <= MAX_MOVE_ALLOCATED_BYTES);
+            }
+        }
+        report.assertWithin(2 * CELLS + 2, MAX_ALLOCATED_BYTES, 0);
+    }
+
+    @Test
+    public void drawsTheUnselectedCellsWithOneCallInLargeGridMode() {
+        final PatternView view = new PatternView(RuntimeEnvironment.application);
+        view.setLargeGridMode(true);
+        final TouchReplayHarness harness = new TouchReplayHarness(view, SIZE, SIZE);
+        final GestureScript script = newScript();
+        harness.replay(script);
+
+        final FrameReport report = harness.replay(script, REPLAYS);
+        final int frames = TouchReplayHarness.getFrameCount(script);
+        assertEquals(frames, report.getFrameCount());
+        assertArrayEquals(new int[]{0, 1, 2, 4, 6, 7, 8}, indices(view.getPatternCells()));
+        // the tile, two bitmaps per selected cell, the path and, from the
+        // second cell until the finger is up, the rubber band
+        final int[] drawCalls = {4, 4, 7, 7, 7, 9, 9, 9, 9, 11, 11, 11, 11, 11, 13, 13, 13, 13, 15, 15, 15, 16};
+        assertEquals(drawCalls.length, frames);
+        for (int i = 0; i < frames; i++) {
+            assertEquals(report.toString(), drawCalls[i], report.getDrawCalls(i));
+            if (i > 0 && i < frames - 1) {
+                assertTrue("frame " + i + ": " + report.getAllocatedBytes(i) + " bytes allocated",
+                        report.getAllocatedBytes(i) <= MAX_MOVE_ALLOCATED_BYTES);
+            }
+        }
+        report.assertWithin(1 + 2 * 7 + 1, MAX_ALLOCATED_BYTES, 0);
+        // the unselected cells are a single rectangle
+        assertEquals(1, harness.getCanvas().getShapeCount());
+    }
+
+    private static int[] indices(ReadOnlyPattern pattern) {
+        final int[] indices = new int[pattern.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = pattern.getIndex(i);
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,154 @@
+package com.eftimoff.patternview;
+
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.mylibrary.R;
+import com.eftimoff.patternview.cells.Cell;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * The cells filled in between two cells of a pattern.
+ * <p/>
+ * The finger moves between two cells along the gaps of the grid, where no
+ * hit area is, so only the gap filling can add the cells on the line
+ * between them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PatternViewGapTest {
+
+    private static final int CELL_SIZE = 100;
+
+    @Test
+    public void fillsTheCellsOnTheLineOnAWideGrid() {
+        final PatternView view = newView(3, 5);
+        // (0,0) to (2,4) passes (1,2)
+        assertArrayEquals(new int[]{0, 7, 14}, jump(view, 5, 0, 0, 2, 4));
+    }
+
+    @Test
+    public void fillsTheCellsOnTheLineOnATallGrid() {
+        final PatternView view = newView(5, 3);
+        // (0,0) to (4,2) passes (2,1)
+        assertArrayEquals(new int[]{0, 7, 14}, jump(view, 3, 0, 0, 4, 2));
+    }
+
+    @Test
+    public void walksTheGcdStepsOnTheLargestGrid() {
+        final PatternView view = newView(16, 16);
+        // gcd(15, 10) = 5 steps of (3,2)
+        assertArrayEquals(new int[]{0, 50, 100, 150, 200, 250}, jump(view, 16, 0, 0, 15, 10));
+        assertArrayEquals(new int[]{0, 18}, jump(view, 16, 0, 0, 1, 2));
+    }
+
+    @Test
+    public void matchesTheCellsExactlyOnTheSegmentOnRectangularGrids() {
+        final int[][] sizes = {{3, 3}, {3, 5}, {5, 3}, {4, 7}, {16, 16}};
+        for (int[] size : sizes) {
+            final int rows = size[0];
+            final int columns = size[1];
+            final PatternView view = newView(rows, columns);
+            for (int from = 0; from < rows * columns; from++) {
+                for (int to = 0; to < rows * columns; to++) {
+                    if (from == to) {
+                        continue;
+                    }
+                    final int fromRow = from / columns;
+                    final int fromColumn = from % columns;
+                    final int toRow = to / columns;
+                    final int toColumn = to % columns;
+                    assertArrayEquals(rows + "x" + columns + " " + from + "->" + to,
+                            onSegment(columns, fromRow, fromColumn, toRow, toColumn),
+                            jump(view, columns, fromRow, fromColumn, toRow, toColumn));
+                }
+            }
+        }
+    }
+
+    /**
+     * The cells whose centers lie on the segment, found by checking every
+     * cell of the bounding box.
+     */
+    private static int[] onSegment(int columns, int fromRow, int fromColumn, int toRow, int toColumn) {
+        final int dRow = toRow - fromRow;
+        final int dColumn = toColumn - fromColumn;
+        final int steps = Math.max(Math.abs(dRow), Math.abs(dColumn));
+        final List<Integer> cells = new ArrayList<>();
+        cells.add(fromRow * columns + fromColumn);
+        // walking the longer axis visits the cells in order
+        for (int i = 1; i < steps; i++) {
+            final int rowTimesSteps = fromRow * steps + i * dRow;
+            final int columnTimesSteps = fromColumn * steps + i * dColumn;
+            if (rowTimesSteps % steps == 0 && columnTimesSteps % steps == 0) {
+                cells.add(rowTimesSteps / steps * columns + columnTimesSteps / steps);
+            }
+        }
+        cells.add(toRow * columns + toColumn);
+        final int[] result = new int[cells.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cells.get(i);
+        }
+        return result;
+    }
+
+    private static PatternView newView(int rows, int columns) {
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.gridRows, String.valueOf(rows))
+                .addAttribute(R.attr.gridColumns, String.valueOf(columns))
+                .build();
+        final PatternView view = new PatternView(RuntimeEnvironment.application, attrs);
+        view.measure(View.MeasureSpec.makeMeasureSpec(columns * CELL_SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(rows * CELL_SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    /**
+     * Touches the center of a cell, moves to the center of another one along
+     * the lines between the cells, and lifts the finger.
+     */
+    private static int[] jump(PatternView view, int columns, int fromRow, int fromColumn, int toRow, int toColumn) {
+        final long time = SystemClock.uptimeMillis();
+        send(view, time, MotionEvent.ACTION_DOWN, centerX(fromColumn), centerY(fromRow));
+        send(view, time, MotionEvent.ACTION_MOVE, fromColumn * CELL_SIZE, fromRow * CELL_SIZE);
+        send(view, time, MotionEvent.ACTION_MOVE, toColumn * CELL_SIZE, fromRow * CELL_SIZE);
+        send(view, time, MotionEvent.ACTION_MOVE, toColumn * CELL_SIZE, toRow * CELL_SIZE);
+        send(view, time, MotionEvent.ACTION_MOVE, centerX(toColumn), centerY(toRow));
+        send(view, time, MotionEvent.ACTION_UP, centerX(toColumn), centerY(toRow));
+        final List<Cell> pattern = view.getPattern();
+        final int[] indices = new int[pattern.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = pattern.get(i).getRow() * columns + pattern.get(i).getColumn();
+        }
+        return indices;
+    }
+
+    private static float centerX(int column) {
+        return column * CELL_SIZE + CELL_SIZE / 2f;
+    }
+
+    private static float centerY(int row) {
+        return row * CELL_SIZE + CELL_SIZE / 2f;
+    }
+
+    private static void send(PatternView view, long downTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, downTime, action, x, y, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,76 @@
+package com.eftimoff.patternview;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.patternview.cells.PatternBuffer;
+import com.eftimoff.patternview.cells.ReadOnlyPattern;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The pattern handed out by {@link PatternView#getPatternCells()} and the
+ * cell listeners.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PatternViewPatternCellsTest {
+
+    private static final int SIZE = 300;
+
+    @Test
+    public void handsOutOneReadOnlyView() {
+        final PatternView view = new PatternView(RuntimeEnvironment.application);
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        final List<ReadOnlyPattern> handedOut = new ArrayList<>();
+        view.setOnPatternCellListener(new PatternView.OnPatternCellListener() {
+            @Override
+            public void onPatternCellAdded(int index, int ordinal, ReadOnlyPattern pattern) {
+                handedOut.add(pattern);
+            }
+        });
+        view.setOnPatternCellBatchListener(new PatternView.OnPatternCellBatchListener() {
+            @Override
+            public void onPatternCellsAdded(int firstOrdinal, int count, ReadOnlyPattern pattern) {
+                handedOut.add(pattern);
+            }
+        });
+
+        final long time = SystemClock.uptimeMillis();
+        send(view, time, MotionEvent.ACTION_DOWN, 50, 50);
+        send(view, time, MotionEvent.ACTION_MOVE, 150, 50);
+        send(view, time, MotionEvent.ACTION_UP, 150, 50);
+
+        final ReadOnlyPattern cells = view.getPatternCells();
+        assertFalse(cells instanceof PatternBuffer);
+        assertSame(cells, view.getPatternCells());
+        assertEquals(2, cells.size());
+        assertEquals(1, cells.getLastIndex());
+        // two cells and two batches
+        assertEquals(4, handedOut.size());
+        for (ReadOnlyPattern pattern : handedOut) {
+            assertSame(cells, pattern);
+        }
+    }
+
+    private static void send(PatternView view, long downTime, int action, float x, float y) {
+        final MotionEvent event = MotionEvent.obtain(downTime, downTime, action, x, y, 0);
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
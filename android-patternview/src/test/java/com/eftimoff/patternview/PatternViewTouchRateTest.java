@@ -0,0 +1,134 @@
+package com.eftimoff.patternview;
+
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.mylibrary.R;
+import com.eftimoff.patternview.cells.Cell;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The same flick replayed as MotionEvent streams at the touch rates of 60,
+ * 120 and 240 Hz.
+ * <p/>
+ * A flick is a polyline whose corners fall on the samples of every rate, so
+ * each rate samples the same path and only the distance between two samples
+ * changes. Every sample is sent as its own move event, the MotionEvent of
+ * Robolectric keeps no history. At 60 Hz the finger moves several cells
+ * between two samples.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PatternViewTouchRateTest {
+
+    private static final int CELL_SIZE = 100;
+    /**
+     * The rates, as the number of 240 Hz ticks between two samples.
+     */
+    private static final int[] TICKS_PER_SAMPLE = {4, 2, 1};
+    private static final int TICKS_PER_CORNER = 4;
+
+    @Test
+    public void addsTheSameCellsAtEveryRate() {
+        final PatternView view = newView(5, 5);
+        // a Z across the grid in 50 ms, up to 420 pixels between two 60 Hz samples
+        final float[] corners = {
+                50f, 50f,
+                470f, 120f,
+                380f, 480f,
+                30f, 310f,
+        };
+        final int[] cells = replay(view, 5, corners, TICKS_PER_SAMPLE[0]);
+        assertTrue(Arrays.toString(cells), cells.length >= 8);
+        for (int i = 1; i < TICKS_PER_SAMPLE.length; i++) {
+            assertArrayEquals(cells, replay(view, 5, corners, TICKS_PER_SAMPLE[i]));
+        }
+    }
+
+    @Test
+    public void addsTheSameCellsAtEveryRateForRandomFlicks() {
+        final Random random = new Random(17);
+        final int[][] sizes = {{3, 3}, {4, 6}, {9, 9}, {16, 16}};
+        for (int[] size : sizes) {
+            final int rows = size[0];
+            final int columns = size[1];
+            final PatternView view = newView(rows, columns);
+            for (int flick = 0; flick < 200; flick++) {
+                final float[] corners = new float[2 * (2 + random.nextInt(4))];
+                for (int i = 0; i < corners.length; i += 2) {
+                    corners[i] = random.nextFloat() * columns * CELL_SIZE;
+                    corners[i + 1] = random.nextFloat() * rows * CELL_SIZE;
+                }
+                final int[] cells = replay(view, columns, corners, TICKS_PER_SAMPLE[0]);
+                for (int i = 1; i < TICKS_PER_SAMPLE.length; i++) {
+                    assertArrayEquals(rows + "x" + columns + " " + Arrays.toString(corners),
+                            cells, replay(view, columns, corners, TICKS_PER_SAMPLE[i]));
+                }
+            }
+        }
+    }
+
+    private static PatternView newView(int rows, int columns) {
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.gridRows, String.valueOf(rows))
+                .addAttribute(R.attr.gridColumns, String.valueOf(columns))
+                .build();
+        final PatternView view = new PatternView(RuntimeEnvironment.application, attrs);
+        view.measure(View.MeasureSpec.makeMeasureSpec(columns * CELL_SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(rows * CELL_SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    /**
+     * Draws the polyline through the corners with one sample every
+     * ticksPerSample ticks of 240 Hz.
+     */
+    private static int[] replay(PatternView view, int columns, float[] corners, int ticksPerSample) {
+        final long downTime = SystemClock.uptimeMillis();
+        final int lastTick = (corners.length / 2 - 1) * TICKS_PER_CORNER;
+        send(view, MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, corners[0], corners[1], 0));
+        for (int tick = ticksPerSample; tick <= lastTick; tick += ticksPerSample) {
+            final int corner = Math.min(tick / TICKS_PER_CORNER, corners.length / 2 - 2);
+            final float t = (tick - corner * TICKS_PER_CORNER) / (float) TICKS_PER_CORNER;
+            final float x = corners[2 * corner] + (corners[2 * corner + 2] - corners[2 * corner]) * t;
+            final float y = corners[2 * corner + 1] + (corners[2 * corner + 3] - corners[2 * corner + 1]) * t;
+            send(view, MotionEvent.obtain(downTime, downTime + time(tick), MotionEvent.ACTION_MOVE, x, y, 0));
+        }
+        final float x = corners[corners.length - 2];
+        final float y = corners[corners.length - 1];
+        send(view, MotionEvent.obtain(downTime, downTime + time(lastTick), MotionEvent.ACTION_UP, x, y, 0));
+
+        final List<Cell> pattern = view.getPattern();
+        final int[] indices = new int[pattern.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = pattern.get(i).getRow() * columns + pattern.get(i).getColumn();
+        }
+        return indices;
+    }
+
+    private static long time(int tick) {
+        return Math.round(tick * 1000.0 / 240.0);
+    }
+
+    private static void send(PatternView view, MotionEvent event) {
+        view.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
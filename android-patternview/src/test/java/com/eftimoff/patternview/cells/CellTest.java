@@ -0,0 +1,55 @@
+package com.eftimoff.patternview.cells;
+
+import android.os.Parcel;
+
+import com.eftimoff.mylibrary.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * A {@link Cell} through a {@link Parcel}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CellTest {
+
+    @Test
+    public void isReadBackByTheCreator() {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            new Cell(2, 1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            final Cell cell = Cell.CREATOR.createFromParcel(parcel);
+            assertEquals(2, cell.getRow());
+            assertEquals(1, cell.getColumn());
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void cannotBeReadInto() {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            new Cell(2, 1).writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            final Cell cell = new Cell(0, 0);
+            try {
+                cell.readFromParcel(parcel);
+                fail();
+            } catch (UnsupportedOperationException expected) {
+                assertEquals(0, cell.getRow());
+                assertEquals(0, cell.getColumn());
+            }
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
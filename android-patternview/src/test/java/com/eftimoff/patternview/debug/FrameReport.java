@@ -0,0 +1,163 @@
+package com.eftimoff.patternview.debug;
+
+/**
+ * The cost of each frame of a replayed gesture: draw calls, allocated bytes
+ * and the time spent in touch handling and drawing.
+ */
+public class FrameReport {
+
+    private final int[] drawCalls;
+    private final long[] allocatedBytes;
+    private final long[] touchNanos;
+    private final long[] drawNanos;
+    private int frameCount;
+
+    /**
+     * @param capacity The maximum number of frames.
+     */
+    public FrameReport(final int capacity) {
+        drawCalls = new int[capacity];
+        allocatedBytes = new long[capacity];
+        touchNanos = new long[capacity];
+        drawNanos = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return drawCalls.length;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getDrawCalls(final int frame) {
+        return drawCalls[frame];
+    }
+
+    /**
+     * @return The bytes allocated by the thread during the frame, or 0 where
+     * the JVM does not count them.
+     */
+    public long getAllocatedBytes(final int frame) {
+        return allocatedBytes[frame];
+    }
+
+    public long getTouchNanos(final int frame) {
+        return touchNanos[frame];
+    }
+
+    public long getDrawNanos(final int frame) {
+        return drawNanos[frame];
+    }
+
+    public int getMaxDrawCalls() {
+        int max = 0;
+        for (int i = 0; i < frameCount; i++) {
+            max = Math.max(max, drawCalls[i]);
+        }
+        return max;
+    }
+
+    public long getMaxAllocatedBytes() {
+        long max = 0;
+        for (int i = 0; i < frameCount; i++) {
+            max = Math.max(max, allocatedBytes[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return The longest touch handling and drawing of a frame.
+     */
+    public long getMaxFrameNanos() {
+        long max = 0;
+        for (int i = 0; i < frameCount; i++) {
+            max = Math.max(max, touchNanos[i] + drawNanos[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Checks every frame against a budget, e.g. in a regression test.
+     *
+     * @param maxDrawCalls      The maximum draw calls of a frame.
+     * @param maxAllocatedBytes The maximum bytes allocated in a frame.
+     * @param maxFrameNanos     The maximum touch handling and drawing time of
+     *                          a frame, or 0 for no limit.
+     * @throws AssertionError With the first frame over the budget.
+     */
+    public void assertWithin(final int maxDrawCalls, final long maxAllocatedBytes, final long maxFrameNanos) {
+        for (int i = 0; i < frameCount; i++) {
+            if (drawCalls[i] > maxDrawCalls) {
+                throw new AssertionError("frame " + i + ": " + drawCalls[i]
+                        + " draw calls, budget " + maxDrawCalls);
+            }
+            if (allocatedBytes[i] > maxAllocatedBytes) {
+                throw new AssertionError("frame " + i + ": " + allocatedBytes[i]
+                        + " bytes allocated, budget " + maxAllocatedBytes);
+            }
+            if (maxFrameNanos > 0 && touchNanos[i] + drawNanos[i] > maxFrameNanos) {
+                throw new AssertionError("frame " + i + ": " + (touchNanos[i] + drawNanos[i])
+                        + "ns, budget " + maxFrameNanos + "ns");
+            }
+        }
+    }
+
+    /**
+     * Removes every frame.
+     */
+    public void clear() {
+        frameCount = 0;
+    }
+
+    /**
+     * Keeps the fewest allocated bytes and the shortest times of each frame,
+     * between this report and another replay of the same gesture.
+     *
+     * @throws AssertionError If the frames or their draw calls differ.
+     */
+    void keepMinimum(final FrameReport other) {
+        if (other.frameCount != frameCount) {
+            throw new AssertionError(frameCount + " frames, then " + other.frameCount);
+        }
+        for (int i = 0; i < frameCount; i++) {
+            if (other.drawCalls[i] != drawCalls[i]) {
+                throw new AssertionError("frame " + i + ": " + drawCalls[i]
+                        + " draw calls, then " + other.drawCalls[i]);
+            }
+            allocatedBytes[i] = Math.min(allocatedBytes[i], other.allocatedBytes[i]);
+            touchNanos[i] = Math.min(touchNanos[i], other.touchNanos[i]);
+            drawNanos[i] = Math.min(drawNanos[i], other.drawNanos[i]);
+        }
+    }
+
+    void add(final int drawCalls, final long allocatedBytes, final long touchNanos, final long drawNanos) {
+        if (frameCount == this.drawCalls.length) {
+            throw new IllegalStateException("more than " + frameCount + " frames");
+        }
+        this.drawCalls[frameCount] = drawCalls;
+        this.allocatedBytes[frameCount] = allocatedBytes;
+        this.touchNanos[frameCount] = touchNanos;
+        this.drawNanos[frameCount] = drawNanos;
+        frameCount++;
+    }
+
+    @Override
+    public String toString() {
+        long touchTotal = 0;
+        long drawTotal = 0;
+        long allocatedTotal = 0;
+        for (int i = 0; i < frameCount; i++) {
+            touchTotal += touchNanos[i];
+            drawTotal += drawNanos[i];
+            allocatedTotal += allocatedBytes[i];
+        }
+        return "FrameReport{frames=" + frameCount
+                + ", maxDrawCalls=" + getMaxDrawCalls()
+                + ", allocatedBytes=" + allocatedTotal
+                + ", maxAllocatedBytes=" + getMaxAllocatedBytes()
+                + ", touchNanos=" + touchTotal
+                + ", drawNanos=" + drawTotal
+                + ", maxFrameNanos=" + getMaxFrameNanos() + "}";
+    }
+}
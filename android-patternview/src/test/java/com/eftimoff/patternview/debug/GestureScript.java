@@ -0,0 +1,104 @@
+package com.eftimoff.patternview.debug;
+
+/**
+ * A scripted single finger gesture, sampled at a fixed rate.
+ * <p/>
+ * Starts with {@link #down(float, float)}, moves along straight lines with
+ * {@link #lineTo(float, float, long)} and ends when it is replayed. The
+ * coordinates are in pixels of the view, the times in milliseconds from the
+ * down event.
+ */
+public class GestureScript {
+
+    private final int sampleRate;
+    private float[] xs = new float[64];
+    private float[] ys = new float[64];
+    private long[] times = new long[64];
+    private int size;
+
+    /**
+     * @param sampleRate The rate of the digitizer in Hz, e.g. 60 or 240.
+     */
+    public GestureScript(final int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Starts the gesture, removing every sample added before.
+     */
+    public GestureScript down(final float x, final float y) {
+        size = 0;
+        add(x, y, 0);
+        return this;
+    }
+
+    /**
+     * Moves the finger along a straight line from the last sample.
+     *
+     * @param x        The x coordinate of the end of the line.
+     * @param y        The y coordinate of the end of the line.
+     * @param duration The time the move takes in milliseconds.
+     */
+    public GestureScript lineTo(final float x, final float y, final long duration) {
+        if (size == 0) {
+            throw new IllegalStateException("down must be called first");
+        }
+        final float startX = xs[size - 1];
+        final float startY = ys[size - 1];
+        final long startTime = times[size - 1];
+        final int samples = Math.max(1, (int) (duration * sampleRate / 1000));
+        for (int i = 1; i <= samples; i++) {
+            final float t = i / (float) samples;
+            add(startX + (x - startX) * t, startY + (y - startY) * t,
+                    startTime + duration * i / samples);
+        }
+        return this;
+    }
+
+    /**
+     * @return The number of samples, the down sample included.
+     */
+    public int size() {
+        return size;
+    }
+
+    public float getX(final int position) {
+        return xs[position];
+    }
+
+    public float getY(final int position) {
+        return ys[position];
+    }
+
+    public long getTime(final int position) {
+        return times[position];
+    }
+
+    private void add(final float x, final float y, final long time) {
+        if (size == xs.length) {
+            final int capacity = size * 2;
+            xs = copyOf(xs, capacity);
+            ys = copyOf(ys, capacity);
+            final long[] newTimes = new long[capacity];
+            System.arraycopy(times, 0, newTimes, 0, size);
+            times = newTimes;
+        }
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = time;
+        size++;
+    }
+
+    private static float[] copyOf(final float[] array, final int capacity) {
+        final float[] copy = new float[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+}
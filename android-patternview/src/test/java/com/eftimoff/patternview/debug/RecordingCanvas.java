@@ -0,0 +1,182 @@
+package com.eftimoff.patternview.debug;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Canvas that counts the draw calls made on it.
+ * <p/>
+ * Without a bitmap the calls are only counted, so timing a draw measures the
+ * work of the view and not the rasterization. With a bitmap they are drawn
+ * too. State calls like save, restore and clipRect always go to the canvas.
+ */
+public class RecordingCanvas extends Canvas {
+
+    private final boolean drawThrough;
+    private int bitmapCount;
+    private int pathCount;
+    private int lineCount;
+    private int shapeCount;
+
+    /**
+     * Counts the draw calls without drawing.
+     */
+    public RecordingCanvas() {
+        drawThrough = false;
+    }
+
+    /**
+     * Counts the draw calls and draws into a bitmap.
+     *
+     * @param bitmap The mutable bitmap to draw into.
+     */
+    public RecordingCanvas(final Bitmap bitmap) {
+        super(bitmap);
+        drawThrough = true;
+    }
+
+    /**
+     * @return The number of draw calls since the last {@link #reset()}.
+     */
+    public int getDrawCallCount() {
+        return bitmapCount + pathCount + lineCount + shapeCount;
+    }
+
+    public int getBitmapCount() {
+        return bitmapCount;
+    }
+
+    public int getPathCount() {
+        return pathCount;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of circles, ovals, rects and points drawn.
+     */
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * Sets the counts back to zero.
+     */
+    public void reset() {
+        bitmapCount = 0;
+        pathCount = 0;
+        lineCount = 0;
+        shapeCount = 0;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        bitmapCount++;
+        if (drawThrough) {
+            super.drawBitmap(bitmap, left, top, paint);
+        }
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        bitmapCount++;
+        if (drawThrough) {
+            super.drawBitmap(bitmap, src, dst, paint);
+        }
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        bitmapCount++;
+        if (drawThrough) {
+            super.drawBitmap(bitmap, src, dst, paint);
+        }
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        bitmapCount++;
+        if (drawThrough) {
+            super.drawBitmap(bitmap, matrix, paint);
+        }
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        pathCount++;
+        if (drawThrough) {
+            super.drawPath(path, paint);
+        }
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        lineCount++;
+        if (drawThrough) {
+            super.drawLine(startX, startY, stopX, stopY, paint);
+        }
+    }
+
+    @Override
+    public void drawLines(float[] pts, int offset, int count, Paint paint) {
+        lineCount++;
+        if (drawThrough) {
+            super.drawLines(pts, offset, count, paint);
+        }
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawCircle(cx, cy, radius, paint);
+        }
+    }
+
+    @Override
+    public void drawOval(RectF oval, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawOval(oval, paint);
+        }
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawRect(left, top, right, bottom, paint);
+        }
+    }
+
+    @Override
+    public void drawRect(Rect rect, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawRect(rect, paint);
+        }
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawRect(rect, paint);
+        }
+    }
+
+    @Override
+    public void drawPoints(float[] pts, int offset, int count, Paint paint) {
+        shapeCount++;
+        if (drawThrough) {
+            super.drawPoints(pts, offset, count, paint);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.eftimoff.patternview.debug;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reads the bytes allocated by the current thread from the
+ * {@code com.sun.management.ThreadMXBean} of the JVM the tests run on.
+ * <p/>
+ * {@code android.os.Debug} counts allocations only on a device, under a JVM
+ * shadow runtime such as Robolectric it always reports 0. The management
+ * classes are not part of android.jar, so they are reached by reflection.
+ */
+class ThreadAllocations {
+
+    private final Object threadBean;
+    private final Method allocatedBytes;
+    private final Object[] threadId;
+    /**
+     * What reading the counter allocates itself, subtracted from every
+     * reading.
+     */
+    private final long overhead;
+
+    ThreadAllocations() {
+        Object bean = null;
+        Method method = null;
+        try {
+            final Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            bean = Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean").invoke(null);
+            if (beanClass.isInstance(bean)
+                    && (Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) {
+                beanClass.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+                method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (Exception e) {
+            // not a HotSpot like JVM, allocations are not counted
+            method = null;
+        }
+        threadBean = bean;
+        allocatedBytes = method;
+        threadId = new Object[]{Thread.currentThread().getId()};
+        if (method != null) {
+            // warm the reflection up before measuring it
+            read();
+            read();
+        }
+        final long start = read();
+        overhead = read() - start;
+    }
+
+    /**
+     * @return Whether the JVM counts the allocations.
+     */
+    boolean isSupported() {
+        return allocatedBytes != null;
+    }
+
+    /**
+     * @return The bytes allocated by the thread so far, or 0 when they are
+     * not counted.
+     */
+    long read() {
+        if (allocatedBytes == null) {
+            return 0;
+        }
+        try {
+            return (Long) allocatedBytes.invoke(threadBean, threadId);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The bytes allocated between two readings, without the
+     * allocations of the readings.
+     */
+    long since(final long start) {
+        return Math.max(0, read() - start - overhead);
+    }
+}
@@ -0,0 +1,186 @@
+package com.eftimoff.patternview.debug;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.eftimoff.patternview.PatternView;
+
+import org.robolectric.shadow.api.Shadow;
+
+import java.util.Arrays;
+
+/**
+ * Replays {@link GestureScript}s on a {@link PatternView} and measures every
+ * frame, without a window or a display.
+ * <p/>
+ * The samples of each 16ms frame are sent as move events, the first one as a
+ * down event and the last one followed by an up event, then the whole view is
+ * drawn into a {@link RecordingCanvas}. Each sample has its own event, the
+ * MotionEvent of Robolectric keeps no history. The draw calls, the
+ * bytes allocated by the thread and the time spent in touch handling and in
+ * drawing are added to a {@link FrameReport}.
+ * <p/>
+ * Part of the Robolectric unit tests, it runs on the thread of the view. The
+ * allocations are read from the JVM, see {@link ThreadAllocations}, and
+ * include those of the shadows. With
+ * {@link PatternView#setFrameAlignedInput(boolean)} the move samples are only
+ * handled when the looper runs a frame, or on the up event.
+ * <p/>
+ * The shadow of {@link View#draw(android.graphics.Canvas)} only draws the
+ * background, so the view is drawn through the real implementation.
+ */
+public class TouchReplayHarness {
+
+    /**
+     * The length of a frame in milliseconds.
+     */
+    public static final long FRAME_MILLIS = 16;
+
+    private final PatternView view;
+    private final View realView;
+    private final RecordingCanvas canvas;
+    private final ThreadAllocations allocations = new ThreadAllocations();
+    private MotionEvent[] events = new MotionEvent[8];
+
+    /**
+     * Lays the view out at a size and counts its draw calls without drawing.
+     *
+     * @param view   The view, created or inflated by the caller.
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     */
+    public TouchReplayHarness(final PatternView view, final int width, final int height) {
+        this(view, width, height, new RecordingCanvas());
+    }
+
+    /**
+     * Lays the view out at a size and draws it into a canvas.
+     *
+     * @param view   The view, created or inflated by the caller.
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param canvas The canvas to draw into, e.g. one backed by a bitmap.
+     */
+    public TouchReplayHarness(final PatternView view, final int width, final int height,
+                              final RecordingCanvas canvas) {
+        this.view = view;
+        this.realView = Shadow.directlyOn(view, View.class);
+        this.canvas = canvas;
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    public PatternView getView() {
+        return view;
+    }
+
+    public RecordingCanvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * @return The number of frames a gesture is replayed in.
+     */
+    public static int getFrameCount(final GestureScript script) {
+        if (script.size() == 0) {
+            return 0;
+        }
+        return (int) (script.getTime(script.size() - 1) / FRAME_MILLIS) + 1;
+    }
+
+    /**
+     * Replays a gesture.
+     *
+     * @param script The gesture.
+     * @return The cost of each frame.
+     */
+    public FrameReport replay(final GestureScript script) {
+        final FrameReport report = new FrameReport(getFrameCount(script));
+        replay(script, report);
+        return report;
+    }
+
+    /**
+     * Replays a gesture several times and keeps, for every frame, the fewest
+     * allocated bytes and the shortest times. This leaves out what the runtime
+     * pays once at some frame, e.g. class loading or the linking of a call
+     * site in the shadows.
+     *
+     * @param script The gesture.
+     * @param times  The number of replays, at least 1.
+     * @return The cost of each frame.
+     * @throws AssertionError If the draw calls of a frame differ between
+     *                        replays.
+     */
+    public FrameReport replay(final GestureScript script, final int times) {
+        final FrameReport best = replay(script);
+        final FrameReport report = new FrameReport(best.getCapacity());
+        for (int i = 1; i < times; i++) {
+            report.clear();
+            replay(script, report);
+            best.keepMinimum(report);
+        }
+        return best;
+    }
+
+    /**
+     * Replays a gesture, adding its frames to a report.
+     *
+     * @param script The gesture.
+     * @param report The report, with room for {@link #getFrameCount(GestureScript)}
+     *               more frames.
+     */
+    public void replay(final GestureScript script, final FrameReport report) {
+        final int size = script.size();
+        final long downTime = SystemClock.uptimeMillis();
+        int position = 0;
+        int frame = 0;
+        while (position < size) {
+            final long frameEnd = (frame + 1) * FRAME_MILLIS;
+            int count = 0;
+            if (position == 0) {
+                add(count++, MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN,
+                        script.getX(0), script.getY(0), 0));
+                position++;
+            }
+            while (position < size && script.getTime(position) < frameEnd) {
+                add(count++, MotionEvent.obtain(downTime, downTime + script.getTime(position),
+                        MotionEvent.ACTION_MOVE, script.getX(position), script.getY(position), 0));
+                position++;
+            }
+            if (position == size) {
+                add(count++, MotionEvent.obtain(downTime, downTime + script.getTime(size - 1),
+                        MotionEvent.ACTION_UP, script.getX(size - 1), script.getY(size - 1), 0));
+            }
+
+            // the events are built first, so only the view's allocations count
+            final long allocationStart = allocations.read();
+            final long touchStart = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                view.dispatchTouchEvent(events[i]);
+            }
+            final long drawStart = System.nanoTime();
+            canvas.reset();
+            realView.draw(canvas);
+            final long drawEnd = System.nanoTime();
+            final long allocatedBytes = allocations.since(allocationStart);
+            report.add(canvas.getDrawCallCount(), allocatedBytes,
+                    drawStart - touchStart, drawEnd - drawStart);
+
+            for (int i = 0; i < count; i++) {
+                events[i].recycle();
+                events[i] = null;
+            }
+            frame++;
+        }
+    }
+
+    private void add(final int index, final MotionEvent event) {
+        if (index == events.length) {
+            events = Arrays.copyOf(events, index * 2);
+        }
+        events[index] = event;
+    }
+}
@@ -0,0 +1,43 @@
+package com.eftimoff.patternview.utils;
+
+import com.eftimoff.mylibrary.BuildConfig;
+import com.eftimoff.patternview.cells.Cell;
+import com.eftimoff.patternview.cells.CellManager;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CellUtils#stringToPattern(String, CellManager)} reads the strings it
+ * always read.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CellUtilsTest {
+
+    @Test
+    public void keepsRepeatedCells() {
+        final CellManager cellManager = new CellManager(3, 3);
+        final List<Cell> pattern = CellUtils.stringToPattern("000-000&001-002&000-000", cellManager);
+        assertEquals(Arrays.asList(cellManager.get(0, 0), cellManager.get(1, 2), cellManager.get(0, 0)),
+                pattern);
+    }
+
+    @Test
+    public void readsAnEmptyStringAsAnEmptyPattern() {
+        assertTrue(CellUtils.stringToPattern("", new CellManager(3, 3)).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCellsOutsideOfTheGrid() {
+        CellUtils.stringToPattern("000-003", new CellManager(3, 3));
+    }
+}
@@ -0,0 +1,59 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.cells.Cell;
+import com.eftimoff.patternview.cells.CellManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Cell#getId()} of every cell of the grid, for the shared cells of a
+ * {@link CellManager} and for cells created directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CellIdBenchmark {
+
+    @Param({"3", "4", "6", "8", "12", "16"})
+    public int size;
+
+    private Cell[] managedCells;
+    private Cell[] plainCells;
+
+    @Setup
+    public void setUp() {
+        final CellManager cellManager = new CellManager(size, size);
+        managedCells = new Cell[size * size];
+        plainCells = new Cell[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                managedCells[i * size + j] = cellManager.get(i, j);
+                plainCells[i * size + j] = new Cell(i, j);
+            }
+        }
+    }
+
+    @Benchmark
+    public void managedCellId(final Blackhole blackhole) {
+        for (Cell cell : managedCells) {
+            blackhole.consume(cell.getId());
+        }
+    }
+
+    @Benchmark
+    public void plainCellId(final Blackhole blackhole) {
+        for (Cell cell : plainCells) {
+            blackhole.consume(cell.getId());
+        }
+    }
+}
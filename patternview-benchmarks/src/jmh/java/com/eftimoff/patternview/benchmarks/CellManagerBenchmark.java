@@ -0,0 +1,81 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.cells.CellManager;
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CellManager} lookups and drawn state, over every cell of the grid in
+ * a random order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CellManagerBenchmark {
+
+    @Param({"3", "4", "6", "8", "12", "16"})
+    public int size;
+
+    private CellManager cellManager;
+    private int[] rows;
+    private int[] columns;
+
+    @Setup
+    public void setUp() {
+        cellManager = new CellManager(size, size);
+        final PatternBuffer pattern = Patterns.fullPattern(size, size, 42);
+        rows = new int[pattern.size()];
+        columns = new int[pattern.size()];
+        for (int i = 0; i < pattern.size(); i++) {
+            rows[i] = pattern.getRow(i);
+            columns[i] = pattern.getColumn(i);
+        }
+        // half of the cells drawn for isDrawn
+        for (int i = 0; i < rows.length; i += 2) {
+            cellManager.draw(rows[i], columns[i], true);
+        }
+    }
+
+    @Benchmark
+    public void get(final Blackhole blackhole) {
+        for (int i = 0; i < rows.length; i++) {
+            blackhole.consume(cellManager.get(rows[i], columns[i]));
+        }
+    }
+
+    @Benchmark
+    public int isDrawn() {
+        int drawn = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (cellManager.isDrawn(rows[i], columns[i])) {
+                drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    @Benchmark
+    public void draw() {
+        for (int i = 0; i < rows.length; i++) {
+            cellManager.draw(rows[i], columns[i], (i & 1) == 0);
+        }
+    }
+
+    @Benchmark
+    public int clearDrawing() {
+        cellManager.clearDrawing();
+        cellManager.draw(rows[0], columns[0], true);
+        return cellManager.getDrawnCount();
+    }
+}
@@ -0,0 +1,59 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.cells.Cell;
+import com.eftimoff.patternview.cells.CellManager;
+import com.eftimoff.patternview.cells.CellTable;
+import com.eftimoff.patternview.cells.PatternBuffer;
+import com.eftimoff.patternview.utils.CellUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CellUtils} conversions of a pattern with every cell of the grid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CellUtilsBenchmark {
+
+    @Param({"3", "4", "6", "8", "12", "16"})
+    public int size;
+
+    private CellManager cellManager;
+    private String string;
+    private int[] array;
+
+    @Setup
+    public void setUp() {
+        cellManager = new CellManager(size, size);
+        final PatternBuffer pattern = Patterns.fullPattern(size, size, 42);
+        final CellTable cellTable = cellManager.getCellTable();
+        final char[] chars = new char[cellTable.getMaxPatternStringLength()];
+        string = new String(chars, 0, cellTable.writePatternString(pattern, chars));
+        array = new int[pattern.size() * 2];
+        for (int i = 0; i < pattern.size(); i++) {
+            array[2 * i] = pattern.getRow(i);
+            array[2 * i + 1] = pattern.getColumn(i);
+        }
+    }
+
+    @Benchmark
+    public List<Cell> stringToPattern() {
+        return CellUtils.stringToPattern(string, cellManager);
+    }
+
+    @Benchmark
+    public List<Cell> intArrayToPattern() {
+        return CellUtils.intArrayToPattern(array, cellManager);
+    }
+}
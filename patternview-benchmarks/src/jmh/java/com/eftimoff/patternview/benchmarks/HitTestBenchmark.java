@@ -0,0 +1,99 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.touch.HitTester;
+import com.eftimoff.patternview.touch.PatternRecognizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping touch points to cells: single points, segments between samples,
+ * and a whole gesture through {@link PatternRecognizer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitTestBenchmark {
+
+    private static final int POINTS = 1024;
+    private static final float CELL_SIZE = 120f;
+    /**
+     * Samples of the replayed gesture, a 240 Hz digitizer over one second.
+     */
+    private static final int GESTURE_SAMPLES = 240;
+
+    @Param({"3", "4", "6", "8", "12", "16"})
+    public int size;
+
+    @Param({"SQUARE", "CIRCLE"})
+    public HitTester.Shape shape;
+
+    private HitTester hitTester;
+    private PatternRecognizer recognizer;
+    private final float[] xs = new float[POINTS];
+    private final float[] ys = new float[POINTS];
+    private final float[] gestureXs = new float[GESTURE_SAMPLES];
+    private final float[] gestureYs = new float[GESTURE_SAMPLES];
+    private int[] sweepHits;
+
+    @Setup
+    public void setUp() {
+        hitTester = new HitTester(size, size);
+        hitTester.setShape(shape);
+        hitTester.setGeometry(0f, 0f, CELL_SIZE, CELL_SIZE);
+        sweepHits = new int[hitTester.getMaxSweepHits()];
+        final float extent = size * CELL_SIZE;
+        final Random random = new Random(42);
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextFloat() * extent;
+            ys[i] = random.nextFloat() * extent;
+        }
+
+        recognizer = new PatternRecognizer(size, size);
+        recognizer.getHitTester().setShape(shape);
+        recognizer.getHitTester().setGeometry(0f, 0f, CELL_SIZE, CELL_SIZE);
+        // a zig zag over the whole grid
+        for (int i = 0; i < GESTURE_SAMPLES; i++) {
+            final float t = i / (float) (GESTURE_SAMPLES - 1);
+            gestureXs[i] = extent * (0.5f + 0.45f * (float) Math.sin(t * 6 * Math.PI));
+            gestureYs[i] = extent * (0.05f + 0.9f * t);
+        }
+    }
+
+    @Benchmark
+    public int hit() {
+        int hits = 0;
+        for (int i = 0; i < POINTS; i++) {
+            hits += hitTester.hit(xs[i], ys[i]);
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int sweep() {
+        int hits = 0;
+        for (int i = 1; i < POINTS; i++) {
+            hits += hitTester.sweep(xs[i - 1], ys[i - 1], xs[i], ys[i], sweepHits);
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int recognizeGesture() {
+        recognizer.down(gestureXs[0], gestureYs[0], 0);
+        for (int i = 1; i < GESTURE_SAMPLES; i++) {
+            recognizer.move(gestureXs[i], gestureYs[i], i * 4);
+        }
+        recognizer.up(GESTURE_SAMPLES * 4);
+        return recognizer.getPattern().size();
+    }
+}
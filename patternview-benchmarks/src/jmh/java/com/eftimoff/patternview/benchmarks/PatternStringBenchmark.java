@@ -0,0 +1,71 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.cells.CellTable;
+import com.eftimoff.patternview.cells.PatternBuffer;
+import com.eftimoff.patternview.cells.PatternCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a pattern with every cell of the grid, as a string and with
+ * {@link PatternCodec}.
+ * <p/>
+ * {@code PatternView.patternToString()} needs a view, {@link #patternToString()}
+ * runs the same code on the cell table and a reused buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PatternStringBenchmark {
+
+    @Param({"3", "4", "6", "8", "12", "16"})
+    public int size;
+
+    private PatternBuffer pattern;
+    private PatternBuffer decoded;
+    private CellTable cellTable;
+    private char[] chars;
+    private String string;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        pattern = Patterns.fullPattern(size, size, 42);
+        decoded = new PatternBuffer(size, size);
+        cellTable = CellTable.forSize(size, size);
+        chars = new char[cellTable.getMaxPatternStringLength()];
+        string = new String(chars, 0, cellTable.writePatternString(pattern, chars));
+        bytes = PatternCodec.encode(pattern);
+    }
+
+    @Benchmark
+    public String patternToString() {
+        final int length = cellTable.writePatternString(pattern, chars);
+        return new String(chars, 0, length);
+    }
+
+    @Benchmark
+    public int parseString() {
+        PatternCodec.parseString(string, decoded);
+        return decoded.size();
+    }
+
+    @Benchmark
+    public int encode() {
+        return PatternCodec.encode(pattern, bytes, 0);
+    }
+
+    @Benchmark
+    public int decode() {
+        return PatternCodec.decode(bytes, 0, bytes.length, decoded);
+    }
+}
@@ -0,0 +1,39 @@
+package com.eftimoff.patternview.benchmarks;
+
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+import java.util.Random;
+
+/**
+ * Inputs shared by the benchmarks.
+ */
+final class Patterns {
+
+    private Patterns() {
+
+    }
+
+    /**
+     * @return A pattern with every cell of the grid, in a random order that
+     * only depends on the seed.
+     */
+    static PatternBuffer fullPattern(final int rows, final int columns, final long seed) {
+        final int size = rows * columns;
+        final int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        final Random random = new Random(seed);
+        for (int i = size - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        final PatternBuffer pattern = new PatternBuffer(rows, columns);
+        for (int index : order) {
+            pattern.addIndex(index);
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,94 @@
+package com.eftimoff.patternview;
+
+/**
+ * Hook for timings and counters of the pattern view, e.g. to export them to
+ * a telemetry system.
+ * <p/>
+ * Install one with {@code PatternView.setMetrics()}. Without one nothing is
+ * measured, not even the time. The callbacks run on the UI thread in the
+ * middle of touch handling and drawing, so they should only add the values up.
+ */
+public interface PatternViewMetrics {
+
+    /**
+     * The timed phases. They do not overlap, except {@link #DRAW} which
+     * includes the other draw phases.
+     */
+    enum Timing {
+        /**
+         * Finding the cells under a touch sample or between two samples.
+         */
+        HIT_TEST,
+        /**
+         * Finding the cells between two cells of the pattern.
+         */
+        GAP_FILL,
+        /**
+         * Reporting a change of the pattern to the view, and through it to
+         * the pattern listeners.
+         */
+        DISPATCH,
+        /**
+         * Drawing the circles of the grid.
+         */
+        DRAW_GRID,
+        /**
+         * Drawing the path of the pattern.
+         */
+        DRAW_PATH,
+        /**
+         * The whole onDraw.
+         */
+        DRAW
+    }
+
+    /**
+     * The counted events.
+     */
+    enum Counter {
+        /**
+         * A frame was drawn.
+         */
+        FRAME,
+        /**
+         * The view, or a part of it, was invalidated.
+         */
+        INVALIDATION,
+        /**
+         * A touch event was handled.
+         */
+        TOUCH_EVENT,
+        /**
+         * A segment was added to the path of the pattern, which may grow it.
+         */
+        PATH_SEGMENT,
+        /**
+         * The cached grid layer, or the cell tile of the large grid mode, was
+         * drawn again.
+         */
+        GRID_LAYER_RENDER,
+        /**
+         * The circle bitmaps were loaded and tinted.
+         */
+        BITMAP_LOAD,
+        /**
+         * The pattern was copied into a new string or array.
+         */
+        PATTERN_EXPORT
+    }
+
+    /**
+     * A phase ended.
+     *
+     * @param timing The phase.
+     * @param nanos  Its duration in nanoseconds.
+     */
+    void onTiming(Timing timing, long nanos);
+
+    /**
+     * An event happened.
+     *
+     * @param counter The event.
+     */
+    void onCount(Counter counter);
+}
@@ -0,0 +1,114 @@
+package com.eftimoff.patternview.cells;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size set of cell indices backed by {@code long} words.
+ * Clearing and counting work on whole words, so they cost O(size / 64).
+ */
+public class CellBitSet {
+
+    private final long[] words;
+    private final int size;
+
+    /**
+     * @param size The number of cells the set can hold.
+     */
+    public CellBitSet(final int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative");
+        }
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    /**
+     * @return The number of cells the set can hold.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean get(final int index) {
+        checkIndex(index);
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(final int index) {
+        checkIndex(index);
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(final int index) {
+        checkIndex(index);
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    public void set(final int index, final boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    /**
+     * Removes all cells from the set.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * @return The number of cells in the set.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first cell in the set at or after an index. Iterate with
+     * {@code for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))}.
+     *
+     * @param fromIndex The index to start from.
+     * @return The index of the cell, or -1 if there is none.
+     */
+    public int nextSetBit(final int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> 6;
+        long word = words[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.eftimoff.patternview.cells;
+
+/**
+ * Packed storage for the cells of a pattern.
+ * <p/>
+ * Every cell is kept as its index in the matrix (row * columns + column), so
+ * appending a cell, checking if a cell is part of the pattern and looking up
+ * the last cell are all constant time and do not touch any {@code Cell}
+ * object.
+ */
+public class PatternBuffer implements ReadOnlyPattern {
+
+    private final int rows;
+    private final int columns;
+    /**
+     * The indices of the cells in the order they were added.
+     */
+    private final int[] indices;
+    /**
+     * The cells that are in the pattern.
+     */
+    private final CellBitSet members;
+    private int size;
+
+    /**
+     * @param rows    The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public PatternBuffer(final int rows, final int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("rows and columns must be positive");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.indices = new int[rows * columns];
+        this.members = new CellBitSet(rows * columns);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns;
+    }
+
+    /**
+     * @return The number of cells in the pattern.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a cell to the pattern.
+     *
+     * @param row    The row of the cell.
+     * @param column The column of the cell.
+     * @return false if the cell is already part of the pattern.
+     */
+    public boolean add(final int row, final int column) {
+        checkCell(row, column);
+        return addIndex(row * columns + column);
+    }
+
+    /**
+     * Appends a cell to the pattern by its index.
+     *
+     * @param index The index of the cell.
+     * @return false if the cell is already part of the pattern.
+     */
+    public boolean addIndex(final int index) {
+        if (containsIndex(index)) {
+            return false;
+        }
+        members.set(index);
+        indices[size++] = index;
+        return true;
+    }
+
+    @Override
+    public boolean contains(final int row, final int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns
+                && containsIndex(row * columns + column);
+    }
+
+    @Override
+    public boolean containsIndex(final int index) {
+        checkIndex(index);
+        return members.get(index);
+    }
+
+    /**
+     * @param position The position in the pattern, starting by zero.
+     * @return The index of the cell at this position.
+     */
+    @Override
+    public int getIndex(final int position) {
+        checkPosition(position);
+        return indices[position];
+    }
+
+    @Override
+    public int getRow(final int position) {
+        return getIndex(position) / columns;
+    }
+
+    @Override
+    public int getColumn(final int position) {
+        return getIndex(position) % columns;
+    }
+
+    /**
+     * @return The index of the last cell, or -1 if the pattern is empty.
+     */
+    @Override
+    public int getLastIndex() {
+        return size == 0 ? -1 : indices[size - 1];
+    }
+
+    /**
+     * Removes all cells from the pattern.
+     */
+    public void clear() {
+        members.clear();
+        size = 0;
+    }
+
+    private void checkCell(final int row, final int column) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("row must be in range 0-" + (rows - 1));
+        }
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("column must be in range 0-" + (columns - 1));
+        }
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= indices.length) {
+            throw new IllegalArgumentException("index must be in range 0-" + (indices.length - 1));
+        }
+    }
+
+    private void checkPosition(final int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+    }
+}
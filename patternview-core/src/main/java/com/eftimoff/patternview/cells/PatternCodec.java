@@ -0,0 +1,402 @@
+package com.eftimoff.patternview.cells;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary form of a pattern.
+ * <p/>
+ * The format is a version byte followed by the number of rows, the number of
+ * columns, the number of cells and the index (row * columns + column) of every
+ * cell, each as an unsigned varint of at most 31 bits in its shortest form. A
+ * 3x3 pattern of n cells takes 4 + n bytes.
+ * <p/>
+ * The encoder and decoder work directly on arrays and buffers and allocate
+ * nothing. The legacy string form, "000-001&amp;002-002", can be read with
+ * {@link #parseString(CharSequence, PatternBuffer)}, or with
+ * {@link #parseStringIndices(CharSequence, int, int, int[])} when it may
+ * repeat cells.
+ */
+public final class PatternCodec {
+
+    /**
+     * The version written in the first byte.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The separator between two cells in the string form.
+     */
+    public static final char SEPARATOR = '&';
+
+    private PatternCodec() {
+
+    }
+
+    /**
+     * @return The number of bytes {@link #encode(ReadOnlyPattern, byte[], int)}
+     * writes for the pattern.
+     */
+    public static int encodedLength(final ReadOnlyPattern pattern) {
+        final int size = pattern.size();
+        int length = 1 + varintLength(pattern.getRowCount())
+                + varintLength(pattern.getColumnCount()) + varintLength(size);
+        for (int i = 0; i < size; i++) {
+            length += varintLength(pattern.getIndex(i));
+        }
+        return length;
+    }
+
+    /**
+     * @return The pattern encoded in a new array.
+     */
+    public static byte[] encode(final ReadOnlyPattern pattern) {
+        final byte[] out = new byte[encodedLength(pattern)];
+        encode(pattern, out, 0);
+        return out;
+    }
+
+    /**
+     * Encodes a pattern into an array.
+     *
+     * @param pattern The pattern.
+     * @param out     Where to write, with at least {@link #encodedLength(ReadOnlyPattern)}
+     *                bytes after the offset.
+     * @param offset  Where to start writing.
+     * @return The number of bytes written.
+     */
+    public static int encode(final ReadOnlyPattern pattern, final byte[] out, final int offset) {
+        if (out.length - offset < encodedLength(pattern)) {
+            throw new IndexOutOfBoundsException("not enough room to encode the pattern");
+        }
+        int position = offset;
+        out[position++] = (byte) VERSION;
+        position = writeVarint(pattern.getRowCount(), out, position);
+        position = writeVarint(pattern.getColumnCount(), out, position);
+        final int size = pattern.size();
+        position = writeVarint(size, out, position);
+        for (int i = 0; i < size; i++) {
+            position = writeVarint(pattern.getIndex(i), out, position);
+        }
+        return position - offset;
+    }
+
+    /**
+     * Encodes a pattern at the position of a buffer, advancing it.
+     *
+     * @throws BufferOverflowException If there is not enough room left.
+     */
+    public static void encode(final ReadOnlyPattern pattern, final ByteBuffer out) {
+        if (out.remaining() < encodedLength(pattern)) {
+            throw new BufferOverflowException();
+        }
+        out.put((byte) VERSION);
+        putVarint(pattern.getRowCount(), out);
+        putVarint(pattern.getColumnCount(), out);
+        final int size = pattern.size();
+        putVarint(size, out);
+        for (int i = 0; i < size; i++) {
+            putVarint(pattern.getIndex(i), out);
+        }
+    }
+
+    /**
+     * Decodes a pattern from an array.
+     *
+     * @param in     The encoded pattern.
+     * @param offset Where it starts.
+     * @param length The number of bytes available.
+     * @param out    Cleared and filled with the pattern. It must have the
+     *               dimensions of the encoded pattern. Left empty if the
+     *               input is malformed.
+     * @return The number of bytes read.
+     * @throws IllegalArgumentException If the input is malformed or of other
+     *                                  dimensions.
+     */
+    public static int decode(final byte[] in, final int offset, final int length, final PatternBuffer out) {
+        if (offset < 0 || length < 0 || offset + length > in.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        out.clear();
+        try {
+            final int end = offset + length;
+            int position = offset;
+            if (position >= end) {
+                throw new IllegalArgumentException("empty input");
+            }
+            checkVersion(in[position++]);
+            // each varint is returned with the position after it in the high bits
+            long read = readVarint(in, position, end);
+            final int rows = (int) read;
+            read = readVarint(in, (int) (read >>> 32), end);
+            final int columns = (int) read;
+            checkDimensions(rows, columns, out);
+            read = readVarint(in, (int) (read >>> 32), end);
+            final int size = checkSize((int) read, out);
+            position = (int) (read >>> 32);
+            for (int i = 0; i < size; i++) {
+                read = readVarint(in, position, end);
+                addIndex((int) read, out);
+                position = (int) (read >>> 32);
+            }
+            return position - offset;
+        } catch (IllegalArgumentException e) {
+            out.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes a pattern at the position of a buffer, advancing it.
+     *
+     * @param in  The buffer.
+     * @param out Cleared and filled with the pattern, see
+     *            {@link #decode(byte[], int, int, PatternBuffer)}.
+     * @throws IllegalArgumentException If the input is malformed or of other
+     *                                  dimensions.
+     */
+    public static void decode(final ByteBuffer in, final PatternBuffer out) {
+        out.clear();
+        try {
+            checkVersion(in.get());
+            final int rows = getVarint(in);
+            final int columns = getVarint(in);
+            checkDimensions(rows, columns, out);
+            final int size = checkSize(getVarint(in), out);
+            for (int i = 0; i < size; i++) {
+                addIndex(getVarint(in), out);
+            }
+        } catch (BufferUnderflowException e) {
+            out.clear();
+            throw new IllegalArgumentException("truncated input");
+        } catch (IllegalArgumentException e) {
+            out.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses the legacy string form of a pattern, as returned by
+     * {@code PatternView.patternToString()}.
+     *
+     * @param string The string, cells as "row-column" separated by
+     *               {@link #SEPARATOR}.
+     * @param out    Cleared and filled with the pattern. Left empty if the
+     *               string is malformed.
+     * @throws IllegalArgumentException If the string is malformed or has a
+     *                                  cell outside of the pattern.
+     */
+    public static void parseString(final CharSequence string, final PatternBuffer out) {
+        out.clear();
+        try {
+            parseCells(string, out.getRowCount(), out.getColumnCount(), out, null);
+        } catch (IllegalArgumentException e) {
+            out.clear();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The number of cells in the legacy string form of a pattern, the
+     * room {@link #parseStringIndices(CharSequence, int, int, int[])} needs.
+     */
+    public static int countStringCells(final CharSequence string) {
+        final int length = string.length();
+        if (length == 0) {
+            return 0;
+        }
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Parses the legacy string form of a pattern like
+     * {@link #parseString(CharSequence, PatternBuffer)}, but keeps repeated
+     * cells, which the legacy parser accepted and a {@link PatternBuffer}
+     * cannot hold.
+     *
+     * @param string  The string, cells as "row-column" separated by
+     *                {@link #SEPARATOR}.
+     * @param rows    The number of rows of the grid.
+     * @param columns The number of columns of the grid.
+     * @param out     Filled with the index (row * columns + column) of every
+     *                cell, with room for {@link #countStringCells(CharSequence)}
+     *                of them.
+     * @return The number of cells.
+     * @throws IllegalArgumentException  If the string is malformed or has a
+     *                                   cell outside of the grid.
+     * @throws IndexOutOfBoundsException If the string has more cells than
+     *                                   {@code out} has room for.
+     */
+    public static int parseStringIndices(final CharSequence string, final int rows, final int columns,
+                                         final int[] out) {
+        return parseCells(string, rows, columns, null, out);
+    }
+
+    /**
+     * Parses the cells of the legacy string form into a pattern, or into an
+     * array of indices when the pattern is null.
+     *
+     * @return The number of cells.
+     */
+    private static int parseCells(final CharSequence string, final int rows, final int columns,
+                                  final PatternBuffer pattern, final int[] indices) {
+        final int length = string.length();
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        int position = 0;
+        while (true) {
+            // each number is returned with the position after it in the high bits
+            final long row = parseNumber(string, position, '-');
+            final long column = parseNumber(string, (int) (row >>> 32) + 1, SEPARATOR);
+            position = (int) (column >>> 32);
+            if ((int) row >= rows || (int) column >= columns) {
+                throw new IllegalArgumentException("cell out of range at " + position);
+            }
+            final int index = (int) row * columns + (int) column;
+            if (pattern != null) {
+                addIndex(index, pattern);
+            } else if (count < indices.length) {
+                indices[count] = index;
+            } else {
+                throw new IndexOutOfBoundsException("not enough room for the cells");
+            }
+            count++;
+            if (position == length) {
+                return count;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Parses the digits from a position up to a delimiter or the end.
+     *
+     * @return The number, with the position of the delimiter in the high bits.
+     */
+    private static long parseNumber(final CharSequence string, final int start, final char delimiter) {
+        final int length = string.length();
+        int value = 0;
+        int position = start;
+        while (position < length && string.charAt(position) != delimiter) {
+            final char c = string.charAt(position);
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - 9) / 10) {
+                throw new IllegalArgumentException("malformed cell at " + position);
+            }
+            value = value * 10 + (c - '0');
+            position++;
+        }
+        if (position == start || (delimiter == '-' && position == length)) {
+            throw new IllegalArgumentException("malformed cell at " + position);
+        }
+        return ((long) position << 32) | value;
+    }
+
+    private static void checkVersion(final byte version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unknown version " + version);
+        }
+    }
+
+    private static void checkDimensions(final int rows, final int columns, final PatternBuffer out) {
+        if (rows != out.getRowCount() || columns != out.getColumnCount()) {
+            throw new IllegalArgumentException("the pattern is " + rows + "x" + columns
+                    + ", expected " + out.getRowCount() + "x" + out.getColumnCount());
+        }
+    }
+
+    private static int checkSize(final int size, final PatternBuffer out) {
+        if (size < 0 || size > out.getRowCount() * out.getColumnCount()) {
+            throw new IllegalArgumentException("invalid number of cells " + size);
+        }
+        return size;
+    }
+
+    private static void addIndex(final int index, final PatternBuffer out) {
+        if (index < 0 || index >= out.getRowCount() * out.getColumnCount() || !out.addIndex(index)) {
+            throw new IllegalArgumentException("invalid or repeated cell " + index);
+        }
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(int value, final byte[] out, int position) {
+        while ((value & ~0x7f) != 0) {
+            out[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static void putVarint(int value, final ByteBuffer out) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * @return The value, with the position after it in the high bits.
+     */
+    private static long readVarint(final byte[] in, int position, final int end) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position >= end) {
+                throw new IllegalArgumentException("truncated input");
+            }
+            final byte b = in[position++];
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                checkLastVarintByte(b, shift);
+                return ((long) position << 32) | (value & 0xffffffffL);
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int getVarint(final ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                checkLastVarintByte(b, shift);
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * Rejects the varints the encoder never writes, so every pattern has a
+     * single encoding: ones with trailing zero bytes, and ones over 31 bits
+     * that would wrap around.
+     *
+     * @param b     The last byte of the varint.
+     * @param shift The shift of the last byte.
+     */
+    private static void checkLastVarintByte(final byte b, final int shift) {
+        if (shift > 0 && b == 0) {
+            throw new IllegalArgumentException("over-long varint");
+        }
+        if (shift == 28 && b > 0x07) {
+            throw new IllegalArgumentException("varint out of range");
+        }
+    }
+}
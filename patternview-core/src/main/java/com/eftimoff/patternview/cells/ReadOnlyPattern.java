@@ -0,0 +1,39 @@
+package com.eftimoff.patternview.cells;
+
+/**
+ * Read only access to the packed cells of a pattern, see {@link PatternBuffer}.
+ * <p/>
+ * Cells are given by their index in the matrix, row * columns + column.
+ */
+public interface ReadOnlyPattern {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    /**
+     * @return The number of cells in the pattern.
+     */
+    int size();
+
+    boolean isEmpty();
+
+    boolean contains(int row, int column);
+
+    boolean containsIndex(int index);
+
+    /**
+     * @param position The position in the pattern, starting by zero.
+     * @return The index of the cell at this position.
+     */
+    int getIndex(int position);
+
+    int getRow(int position);
+
+    int getColumn(int position);
+
+    /**
+     * @return The index of the last cell, or -1 if the pattern is empty.
+     */
+    int getLastIndex();
+}
@@ -0,0 +1,68 @@
+package com.eftimoff.patternview.cells;
+
+/**
+ * Read only view of a {@link PatternBuffer}, which cannot be cast back to the
+ * buffer to change it. It reads through to the buffer, so it follows the
+ * pattern as it changes and can be created once and handed out many times.
+ */
+public final class UnmodifiablePattern implements ReadOnlyPattern {
+
+    private final ReadOnlyPattern pattern;
+
+    public UnmodifiablePattern(final ReadOnlyPattern pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern must not be null");
+        }
+        this.pattern = pattern;
+    }
+
+    @Override
+    public int getRowCount() {
+        return pattern.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return pattern.getColumnCount();
+    }
+
+    @Override
+    public int size() {
+        return pattern.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return pattern.isEmpty();
+    }
+
+    @Override
+    public boolean contains(final int row, final int column) {
+        return pattern.contains(row, column);
+    }
+
+    @Override
+    public boolean containsIndex(final int index) {
+        return pattern.containsIndex(index);
+    }
+
+    @Override
+    public int getIndex(final int position) {
+        return pattern.getIndex(position);
+    }
+
+    @Override
+    public int getRow(final int position) {
+        return pattern.getRow(position);
+    }
+
+    @Override
+    public int getColumn(final int position) {
+        return pattern.getColumn(position);
+    }
+
+    @Override
+    public int getLastIndex() {
+        return pattern.getLastIndex();
+    }
+}
@@ -0,0 +1,182 @@
+package com.eftimoff.patternview.security;
+
+import com.eftimoff.patternview.cells.ReadOnlyPattern;
+
+import java.util.Arrays;
+
+/**
+ * Matches a pattern against several enrolled patterns while it is drawn.
+ * <p/>
+ * The enrolled patterns are kept in a prefix trie over cell indices, with a
+ * dense transition table of one row of {@code rows * columns} entries per
+ * node. Attach it with {@code PatternView.setPatternMatcher} and every added
+ * cell moves it one node down with a single array lookup, whatever the
+ * number of enrolled patterns. {@link #getState()} tells after each cell
+ * whether the pattern can still become an enrolled one.
+ * <p/>
+ * A node takes {@code 4 * rows * columns} bytes, 36 bytes on a 3x3 grid and
+ * 1 KB on a 16x16 one, and there are at most as many nodes as enrolled
+ * cells, so a hundred 16x16 patterns of 16 cells take at most 1.6 MB.
+ */
+public class PatternMatcher {
+
+    /**
+     * The state of the pattern drawn so far.
+     */
+    public enum State {
+        /**
+         * A prefix of at least one enrolled pattern, but not an enrolled
+         * pattern itself.
+         */
+        VIABLE,
+        /**
+         * An enrolled pattern. It may also be a prefix of longer ones.
+         */
+        MATCH,
+        /**
+         * Not a prefix of any enrolled pattern, whatever is added next.
+         */
+        DEAD
+    }
+
+    private static final int ROOT = 0;
+    /**
+     * The node after a dead cell, off the trie.
+     */
+    private static final int OFF_TRIE = -1;
+    private static final int INITIAL_NODES = 16;
+
+    private final int rows;
+    private final int columns;
+    private final int cellCount;
+    /**
+     * The child of each node for each cell, 0 for none as the root is never
+     * a child.
+     */
+    private int[] transitions;
+    /**
+     * The id + 1 of the pattern ending at each node, 0 for none.
+     */
+    private int[] matches;
+    private int nodeCount = 1;
+    private int patternCount;
+
+    private int node = ROOT;
+    /**
+     * Nothing can match before a pattern is enrolled.
+     */
+    private State state = State.DEAD;
+
+    public PatternMatcher(final int rows, final int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("rows and columns must be positive");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        cellCount = rows * columns;
+        transitions = new int[INITIAL_NODES * cellCount];
+        matches = new int[INITIAL_NODES];
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Enrolls a pattern. The pattern being matched keeps its state, except
+     * that an empty one becomes {@link State#VIABLE} and one that becomes the
+     * enrolled pattern {@link State#MATCH}.
+     *
+     * @param pattern The pattern, of the size of the matcher.
+     * @return The id of the pattern, the number of patterns enrolled before
+     * it, or the id it already had.
+     */
+    public int enroll(final ReadOnlyPattern pattern) {
+        if (pattern.getRowCount() != rows || pattern.getColumnCount() != columns) {
+            throw new IllegalArgumentException("the pattern is not " + rows + "x" + columns);
+        }
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("the pattern is empty");
+        }
+        int current = ROOT;
+        for (int i = 0; i < pattern.size(); i++) {
+            final int transition = current * cellCount + pattern.getIndex(i);
+            int next = transitions[transition];
+            if (next == ROOT) {
+                next = newNode();
+                transitions[transition] = next;
+            }
+            current = next;
+        }
+        if (matches[current] == 0) {
+            matches[current] = ++patternCount;
+        }
+        if (node == ROOT && state == State.DEAD) {
+            state = State.VIABLE;
+        } else if (current == node && state == State.VIABLE) {
+            state = State.MATCH;
+        }
+        return matches[current] - 1;
+    }
+
+    /**
+     * Starts matching a new pattern.
+     */
+    public void reset() {
+        node = ROOT;
+        state = patternCount == 0 ? State.DEAD : State.VIABLE;
+    }
+
+    /**
+     * Adds the next cell of the pattern being matched.
+     *
+     * @param index The index of the cell, row * columns + column.
+     * @return The new state.
+     */
+    public State advance(final int index) {
+        if (state == State.DEAD) {
+            return state;
+        }
+        if (index < 0 || index >= cellCount) {
+            throw new IllegalArgumentException("cell index out of range " + index);
+        }
+        node = transitions[node * cellCount + index];
+        if (node == ROOT) {
+            // so that enroll does not take it for the root
+            node = OFF_TRIE;
+            state = State.DEAD;
+        } else {
+            state = matches[node] != 0 ? State.MATCH : State.VIABLE;
+        }
+        return state;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The id of the enrolled pattern drawn so far, or -1 if the state
+     * is not {@link State#MATCH}.
+     */
+    public int getMatch() {
+        return state == State.MATCH ? matches[node] - 1 : -1;
+    }
+
+    private int newNode() {
+        if (nodeCount == matches.length) {
+            final int capacity = nodeCount * 2;
+            transitions = Arrays.copyOf(transitions, capacity * cellCount);
+            matches = Arrays.copyOf(matches, capacity);
+        }
+        return nodeCount++;
+    }
+}
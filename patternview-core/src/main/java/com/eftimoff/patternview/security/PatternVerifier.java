@@ -0,0 +1,220 @@
+package com.eftimoff.patternview.security;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Salted digest of a pattern, computed one cell at a time while the pattern
+ * is drawn.
+ * <p/>
+ * Attach it with {@code PatternView.setPatternVerifier} and the view feeds it
+ * every cell as it is added, so when the pattern is detected only the last
+ * block of the digest is left to compute. Store the result of
+ * {@link #digest()} instead of the pattern and check the next patterns with
+ * {@link #matches(byte[])}, which compares in constant time.
+ * <p/>
+ * For digests stored at rest, {@link #stretch(Executor, int, OnStretchedListener)}
+ * runs PBKDF2 on top of the digest off the calling thread.
+ */
+public class PatternVerifier {
+
+    /**
+     * The digest algorithm used by default.
+     */
+    public static final String DEFAULT_ALGORITHM = "SHA-256";
+    /**
+     * The length of the salts of {@link #newSalt()}.
+     */
+    public static final int SALT_LENGTH = 16;
+
+    private static final String STRETCH_ALGORITHM = "HmacSHA256";
+
+    private final byte[] salt;
+    private final MessageDigest messageDigest;
+    private byte[] result;
+    private int cellCount;
+
+    /**
+     * Listener of {@link #stretch(Executor, int, OnStretchedListener)}.
+     */
+    public interface OnStretchedListener {
+
+        /**
+         * The key was derived. Called on the thread of the executor.
+         *
+         * @param key The derived key.
+         */
+        void onStretched(byte[] key);
+    }
+
+    /**
+     * @param salt The salt, see {@link #newSalt()}.
+     */
+    public PatternVerifier(final byte[] salt) {
+        this(salt, DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * @param salt      The salt, see {@link #newSalt()}.
+     * @param algorithm The name of the {@link MessageDigest} algorithm. Its
+     *                  implementation must support {@link MessageDigest#clone()}.
+     */
+    public PatternVerifier(final byte[] salt, final String algorithm) {
+        this.salt = salt.clone();
+        try {
+            messageDigest = MessageDigest.getInstance(algorithm);
+            messageDigest.clone();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unknown algorithm " + algorithm, e);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalArgumentException("algorithm " + algorithm + " cannot be cloned", e);
+        }
+        reset();
+    }
+
+    /**
+     * @return A new random salt of {@link #SALT_LENGTH} bytes.
+     */
+    public static byte[] newSalt() {
+        final byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Starts a new pattern.
+     */
+    public void reset() {
+        messageDigest.reset();
+        messageDigest.update(salt);
+        result = null;
+        cellCount = 0;
+    }
+
+    /**
+     * Adds the next cell of the pattern. Cells can still be added after the
+     * digest of the cells so far was computed.
+     *
+     * @param index The index of the cell, row * columns + column.
+     */
+    public void addCell(final int index) {
+        result = null;
+        messageDigest.update((byte) (index >>> 24));
+        messageDigest.update((byte) (index >>> 16));
+        messageDigest.update((byte) (index >>> 8));
+        messageDigest.update((byte) index);
+        cellCount++;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Computes the digest of the cells added since the last {@link #reset()},
+     * e.g. in the middle of a gesture.
+     *
+     * @return A copy of the digest.
+     */
+    public byte[] digest() {
+        return finish().clone();
+    }
+
+    /**
+     * Checks the cells added since the last {@link #reset()} against a stored
+     * digest in constant time.
+     *
+     * @param expected The stored digest.
+     * @return Whether the pattern has that digest.
+     */
+    public boolean matches(final byte[] expected) {
+        return isEqual(finish(), expected);
+    }
+
+    /**
+     * Derives a key from the digest with PBKDF2-HMAC-SHA256 on an executor.
+     *
+     * @param executor   Where to run the derivation, not the UI thread.
+     * @param iterations The number of iterations.
+     * @param listener   Called with the key on the thread of the executor.
+     */
+    public void stretch(final Executor executor, final int iterations, final OnStretchedListener listener) {
+        final byte[] digest = finish().clone();
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                listener.onStretched(stretch(digest, salt, iterations));
+            }
+        });
+    }
+
+    /**
+     * Derives a key with PBKDF2-HMAC-SHA256, see RFC 2898.
+     *
+     * @param password   The password, e.g. a digest of a pattern.
+     * @param salt       The salt.
+     * @param iterations The number of iterations.
+     * @return A key of 32 bytes.
+     */
+    public static byte[] stretch(final byte[] password, final byte[] salt, final int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        try {
+            final Mac mac = Mac.getInstance(STRETCH_ALGORITHM);
+            mac.init(new SecretKeySpec(password, STRETCH_ALGORITHM));
+            // a single block, the key is as long as the output of the mac
+            mac.update(salt);
+            mac.update(new byte[]{0, 0, 0, 1});
+            final byte[] u = mac.doFinal();
+            final byte[] key = u.clone();
+            for (int i = 1; i < iterations; i++) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for (int j = 0; j < key.length; j++) {
+                    key[j] ^= u[j];
+                }
+            }
+            return key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compares two arrays in a time that only depends on their lengths.
+     */
+    public static boolean isEqual(final byte[] a, final byte[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return false;
+        }
+        int difference = 0;
+        for (int i = 0; i < a.length; i++) {
+            difference |= a[i] ^ b[i];
+        }
+        return difference == 0;
+    }
+
+    /**
+     * Computes the digest on a copy of the message digest, which keeps taking
+     * cells.
+     */
+    private byte[] finish() {
+        if (result == null) {
+            try {
+                result = ((MessageDigest) messageDigest.clone()).digest();
+            } catch (CloneNotSupportedException e) {
+                // checked by the constructor
+                throw new IllegalStateException(e);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,368 @@
+package com.eftimoff.patternview.touch;
+
+/**
+ * Maps points of the view to the cells of the matrix.
+ * <p/>
+ * The grid is covered by a downsampled raster which is rebuilt only when the
+ * geometry, the shape or the radius change. Every block of the raster holds
+ * the index of the cell it hits, -1 when it hits nothing, or a marker when it
+ * lies on the edge of a hit area. Looking a point up is a constant amount of
+ * arithmetic, only edge blocks are resolved exactly, so the cost does not
+ * depend on the size of the grid.
+ * <p/>
+ * {@link #sweep(float, float, float, float, int[])} finds every cell whose
+ * hit area a segment crosses, so that fast moves between two far apart
+ * samples do not skip cells.
+ */
+public class HitTester {
+
+    /**
+     * The shape of the area around the center of a cell that hits the cell.
+     */
+    public enum Shape {
+        SQUARE,
+        CIRCLE
+    }
+
+    /**
+     * The default size of the hit area as part of the cell size.
+     */
+    public static final float DEFAULT_HIT_SIZE = 0.6f;
+
+    /**
+     * The maximum number of raster blocks along each side of the grid.
+     */
+    private static final int MAX_RASTER_SIZE = 128;
+
+    private static final int NO_HIT = -1;
+    private static final int EDGE = -2;
+
+    private final int rows;
+    private final int columns;
+
+    private Shape shape = Shape.SQUARE;
+    private float hitSize = DEFAULT_HIT_SIZE;
+
+    private float left;
+    private float top;
+    private float cellWidth;
+    private float cellHeight;
+
+    private float halfHitWidth;
+    private float halfHitHeight;
+    private float circleRadiusSquared;
+
+    private int[] raster = new int[0];
+    private int rasterWidth;
+    private int rasterHeight;
+    private float rasterStep = 1f;
+
+    /**
+     * @param rows    The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public HitTester(final int rows, final int columns) {
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("rows and columns must be positive");
+        }
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public void setShape(final Shape shape) {
+        if (shape == null) {
+            throw new IllegalArgumentException("shape must not be null");
+        }
+        this.shape = shape;
+        rebuild();
+    }
+
+    public float getHitSize() {
+        return hitSize;
+    }
+
+    /**
+     * Sets the size of the hit area. For {@link Shape#SQUARE} it is the side
+     * of the square and for {@link Shape#CIRCLE} the diameter of the circle,
+     * as part of the cell size.
+     *
+     * @param hitSize Value in the range (0, 1].
+     */
+    public void setHitSize(final float hitSize) {
+        if (!(hitSize > 0f && hitSize <= 1f)) {
+            throw new IllegalArgumentException("hitSize must be in range (0, 1]");
+        }
+        this.hitSize = hitSize;
+        rebuild();
+    }
+
+    /**
+     * Sets where the grid is and rebuilds the raster.
+     *
+     * @param left       The x coordinate of the left edge of the grid.
+     * @param top        The y coordinate of the top edge of the grid.
+     * @param cellWidth  The width of one cell.
+     * @param cellHeight The height of one cell.
+     */
+    public void setGeometry(final float left, final float top,
+                            final float cellWidth, final float cellHeight) {
+        this.left = left;
+        this.top = top;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        rebuild();
+    }
+
+    /**
+     * Finds the cell a point hits.
+     *
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The index of the cell, or -1 if the point hits no cell.
+     */
+    public int hit(final float x, final float y) {
+        final int blockX = (int) Math.floor((x - left) / rasterStep);
+        final int blockY = (int) Math.floor((y - top) / rasterStep);
+        if (blockX < 0 || blockY < 0 || blockX >= rasterWidth || blockY >= rasterHeight) {
+            return NO_HIT;
+        }
+        final int value = raster[blockY * rasterWidth + blockX];
+        return value == EDGE ? exactHit(x, y) : value;
+    }
+
+    /**
+     * @return The most cells {@link #sweep(float, float, float, float, int[])}
+     * can return, the size its output array needs.
+     */
+    public int getMaxSweepHits() {
+        return rows + columns;
+    }
+
+    /**
+     * Finds the cells whose hit areas the segment between two points
+     * crosses, in the order the segment enters them. The cells the segment
+     * passes through are walked one by one, so the cost depends on the
+     * length of the segment in cells, not on the size of the grid.
+     *
+     * @param x0  The x coordinate of the start of the segment.
+     * @param y0  The y coordinate of the start of the segment.
+     * @param x1  The x coordinate of the end of the segment.
+     * @param y1  The y coordinate of the end of the segment.
+     * @param out Where to write the indices of the cells, at least
+     *            {@link #getMaxSweepHits()} long.
+     * @return The number of cells written.
+     */
+    public int sweep(final float x0, final float y0, final float x1, final float y1, final int[] out) {
+        if (!(cellWidth > 0f && cellHeight > 0f)) {
+            return 0;
+        }
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        if (dx == 0f && dy == 0f) {
+            final int index = exactHit(x1, y1);
+            if (index == NO_HIT) {
+                return 0;
+            }
+            out[0] = index;
+            return 1;
+        }
+        // clip the segment to the grid
+        final float right = left + columns * cellWidth;
+        final float bottom = top + rows * cellHeight;
+        float tEnter = 0f;
+        float tExit = 1f;
+        if (dx != 0f) {
+            final float ta = (left - x0) / dx;
+            final float tb = (right - x0) / dx;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        } else if (x0 < left || x0 > right) {
+            return 0;
+        }
+        if (dy != 0f) {
+            final float ta = (top - y0) / dy;
+            final float tb = (bottom - y0) / dy;
+            tEnter = Math.max(tEnter, Math.min(ta, tb));
+            tExit = Math.min(tExit, Math.max(ta, tb));
+        } else if (y0 < top || y0 > bottom) {
+            return 0;
+        }
+        if (tEnter > tExit) {
+            return 0;
+        }
+
+        // walk the cells along the segment
+        int column = clamp((int) Math.floor((x0 + dx * tEnter - left) / cellWidth), columns);
+        int row = clamp((int) Math.floor((y0 + dy * tEnter - top) / cellHeight), rows);
+        final int stepColumn = dx > 0f ? 1 : -1;
+        final int stepRow = dy > 0f ? 1 : -1;
+        // the t of the next vertical and horizontal cell border
+        float tNextColumn = dx == 0f ? Float.POSITIVE_INFINITY
+                : (left + (column + (dx > 0f ? 1 : 0)) * cellWidth - x0) / dx;
+        float tNextRow = dy == 0f ? Float.POSITIVE_INFINITY
+                : (top + (row + (dy > 0f ? 1 : 0)) * cellHeight - y0) / dy;
+        final float tDeltaColumn = dx == 0f ? 0f : cellWidth / Math.abs(dx);
+        final float tDeltaRow = dy == 0f ? 0f : cellHeight / Math.abs(dy);
+
+        int count = 0;
+        while (true) {
+            if (segmentHitsCell(x0, y0, dx, dy, row, column)) {
+                out[count++] = row * columns + column;
+            }
+            if (tNextColumn > tExit && tNextRow > tExit) {
+                return count;
+            }
+            if (tNextColumn < tNextRow) {
+                column += stepColumn;
+                tNextColumn += tDeltaColumn;
+            } else {
+                row += stepRow;
+                tNextRow += tDeltaRow;
+            }
+            if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the segment from (x0, y0) along (dx, dy) for t in
+     * [0, 1] crosses the hit area of a cell.
+     */
+    private boolean segmentHitsCell(final float x0, final float y0, final float dx, final float dy,
+                                    final int row, final int column) {
+        // the start of the segment relative to the center of the cell
+        final float px = x0 - (left + column * cellWidth + cellWidth / 2f);
+        final float py = y0 - (top + row * cellHeight + cellHeight / 2f);
+        if (shape == Shape.CIRCLE) {
+            // the closest point of the segment to the center
+            final float lengthSquared = dx * dx + dy * dy;
+            final float t = Math.max(0f, Math.min(1f, -(px * dx + py * dy) / lengthSquared));
+            final float cx = px + dx * t;
+            final float cy = py + dy * t;
+            return cx * cx + cy * cy <= circleRadiusSquared;
+        }
+        // slab test against the hit square
+        float tMin = 0f;
+        float tMax = 1f;
+        if (dx != 0f) {
+            final float ta = (-halfHitWidth - px) / dx;
+            final float tb = (halfHitWidth - px) / dx;
+            tMin = Math.max(tMin, Math.min(ta, tb));
+            tMax = Math.min(tMax, Math.max(ta, tb));
+        } else if (Math.abs(px) > halfHitWidth) {
+            return false;
+        }
+        if (dy != 0f) {
+            final float ta = (-halfHitHeight - py) / dy;
+            final float tb = (halfHitHeight - py) / dy;
+            tMin = Math.max(tMin, Math.min(ta, tb));
+            tMax = Math.min(tMax, Math.max(ta, tb));
+        } else if (Math.abs(py) > halfHitHeight) {
+            return false;
+        }
+        return tMin <= tMax;
+    }
+
+    private static int clamp(final int value, final int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * Finds the cell a point hits without using the raster.
+     */
+    private int exactHit(final float x, final float y) {
+        final int column = (int) Math.floor((x - left) / cellWidth);
+        final int row = (int) Math.floor((y - top) / cellHeight);
+        if (column < 0 || row < 0 || column >= columns || row >= rows) {
+            return NO_HIT;
+        }
+        final float dx = x - (left + column * cellWidth + cellWidth / 2f);
+        final float dy = y - (top + row * cellHeight + cellHeight / 2f);
+        final boolean hit;
+        if (shape == Shape.CIRCLE) {
+            hit = dx * dx + dy * dy <= circleRadiusSquared;
+        } else {
+            hit = Math.abs(dx) <= halfHitWidth && Math.abs(dy) <= halfHitHeight;
+        }
+        return hit ? row * columns + column : NO_HIT;
+    }
+
+    private void rebuild() {
+        halfHitWidth = cellWidth * hitSize / 2f;
+        halfHitHeight = cellHeight * hitSize / 2f;
+        final float circleRadius = Math.min(cellWidth, cellHeight) * hitSize / 2f;
+        circleRadiusSquared = circleRadius * circleRadius;
+
+        final float width = columns * cellWidth;
+        final float height = rows * cellHeight;
+        if (!(width > 0f && height > 0f)) {
+            rasterWidth = 0;
+            rasterHeight = 0;
+            return;
+        }
+        rasterStep = Math.max(1f, Math.max(width, height) / MAX_RASTER_SIZE);
+        rasterWidth = (int) Math.ceil(width / rasterStep);
+        rasterHeight = (int) Math.ceil(height / rasterStep);
+        if (raster.length < rasterWidth * rasterHeight) {
+            raster = new int[rasterWidth * rasterHeight];
+        }
+        for (int blockY = 0; blockY < rasterHeight; blockY++) {
+            for (int blockX = 0; blockX < rasterWidth; blockX++) {
+                raster[blockY * rasterWidth + blockX] = classifyBlock(blockX, blockY);
+            }
+        }
+    }
+
+    /**
+     * @return The cell every point of the block hits, -1 if no point of the
+     * block hits a cell, or {@link #EDGE} if it depends on the point.
+     */
+    private int classifyBlock(final int blockX, final int blockY) {
+        final float blockLeft = blockX * rasterStep;
+        final float blockTop = blockY * rasterStep;
+        final float blockRight = blockLeft + rasterStep;
+        final float blockBottom = blockTop + rasterStep;
+
+        final int column = (int) Math.floor(blockLeft / cellWidth);
+        final int row = (int) Math.floor(blockTop / cellHeight);
+        if (column >= columns || row >= rows
+                || blockRight > (column + 1) * cellWidth
+                || blockBottom > (row + 1) * cellHeight) {
+            // the block crosses the border between two cells
+            return EDGE;
+        }
+
+        // the block relative to the center of the cell
+        final float centerX = column * cellWidth + cellWidth / 2f;
+        final float centerY = row * cellHeight + cellHeight / 2f;
+        final float x0 = blockLeft - centerX;
+        final float x1 = blockRight - centerX;
+        final float y0 = blockTop - centerY;
+        final float y1 = blockBottom - centerY;
+
+        final boolean inside;
+        final boolean outside;
+        if (shape == Shape.CIRCLE) {
+            final float farX = Math.max(Math.abs(x0), Math.abs(x1));
+            final float farY = Math.max(Math.abs(y0), Math.abs(y1));
+            final float nearX = x0 > 0f ? x0 : (x1 < 0f ? -x1 : 0f);
+            final float nearY = y0 > 0f ? y0 : (y1 < 0f ? -y1 : 0f);
+            inside = farX * farX + farY * farY <= circleRadiusSquared;
+            outside = nearX * nearX + nearY * nearY > circleRadiusSquared;
+        } else {
+            inside = x0 >= -halfHitWidth && x1 <= halfHitWidth
+                    && y0 >= -halfHitHeight && y1 <= halfHitHeight;
+            outside = x1 < -halfHitWidth || x0 > halfHitWidth
+                    || y1 < -halfHitHeight || y0 > halfHitHeight;
+        }
+        if (inside) {
+            return row * columns + column;
+        }
+        return outside ? NO_HIT : EDGE;
+    }
+}
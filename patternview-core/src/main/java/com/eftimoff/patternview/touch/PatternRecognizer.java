@@ -0,0 +1,327 @@
+package com.eftimoff.patternview.touch;
+
+import com.eftimoff.patternview.PatternViewMetrics;
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+/**
+ * Turns touch samples into a pattern, without any dependency on the Android
+ * framework.
+ * <p/>
+ * Feed it the samples of a gesture with {@link #down(float, float, long)},
+ * {@link #move(float, float, long)}, {@link #up(long)} and {@link #cancel()}
+ * and it reports the cells through a {@link Listener}. The segment between
+ * two samples is hit tested as a whole, and the cells that lie on the line
+ * between two cells of the pattern are filled in, so the result does not
+ * depend on the sampling rate.
+ */
+public class PatternRecognizer {
+
+    /**
+     * The call back interface for the changes of the pattern.
+     */
+    public interface Listener {
+
+        /**
+         * The pattern was emptied, by a new gesture or a reset.
+         */
+        void onPatternReset();
+
+        /**
+         * The first cell of a new pattern was hit.
+         */
+        void onPatternStart();
+
+        /**
+         * The pattern was extended by one cell.
+         *
+         * @param index   The index of the cell, row * columns + column.
+         * @param ordinal The position of the cell in the pattern.
+         * @param hit     Whether the cell was hit, false if it was filled in
+         *                between the previous cell and a hit one.
+         */
+        void onPatternCellAdded(int index, int ordinal, boolean hit);
+
+        /**
+         * The gesture ended with a pattern.
+         */
+        void onPatternDetected();
+
+        /**
+         * The gesture ended without a pattern, or was cancelled.
+         */
+        void onPatternCleared();
+    }
+
+    private final int rows;
+    private final int columns;
+    private final PatternBuffer pattern;
+    private final HitTester hitTester;
+    private final int[] sweepHits;
+    private final int[] gapCells;
+    private Listener listener;
+    private PatternViewMetrics metrics;
+
+    private boolean inProgress;
+    private float lastX;
+    private float lastY;
+    private long lastTime;
+
+    /**
+     * @param rows    The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     */
+    public PatternRecognizer(final int rows, final int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        pattern = new PatternBuffer(rows, columns);
+        hitTester = new HitTester(rows, columns);
+        sweepHits = new int[hitTester.getMaxSweepHits()];
+        gapCells = new int[Math.max(rows, columns)];
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param metrics Receives the hit testing, gap filling and dispatch
+     *                timings, or null for none.
+     */
+    public void setMetrics(final PatternViewMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The pattern. It may be changed directly, e.g. to set a pattern,
+     * but not while a gesture is in progress.
+     */
+    public PatternBuffer getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return The hit tester, to set the geometry, the shape and the size of
+     * the hit areas.
+     */
+    public HitTester getHitTester() {
+        return hitTester;
+    }
+
+    /**
+     * @return Whether a gesture that hit at least one cell is in progress.
+     */
+    public boolean isInProgress() {
+        return inProgress;
+    }
+
+    /**
+     * @return The time of the last sample in milliseconds.
+     */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Starts a gesture, emptying the pattern.
+     *
+     * @param x    The x coordinate.
+     * @param y    The y coordinate.
+     * @param time The time in milliseconds.
+     */
+    public void down(final float x, final float y, final long time) {
+        reset();
+        lastX = x;
+        lastY = y;
+        lastTime = time;
+        final PatternViewMetrics metrics = this.metrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final int index = hitTester.hit(x, y);
+        if (metrics != null) {
+            metrics.onTiming(PatternViewMetrics.Timing.HIT_TEST, System.nanoTime() - start);
+        }
+        if (addHit(index)) {
+            inProgress = true;
+            notifyPatternStart();
+        } else {
+            inProgress = false;
+            notifyPatternCleared();
+        }
+    }
+
+    /**
+     * Moves the gesture, adding the cells crossed since the last sample.
+     *
+     * @param x    The x coordinate.
+     * @param y    The y coordinate.
+     * @param time The time in milliseconds.
+     */
+    public void move(final float x, final float y, final long time) {
+        final boolean wasEmpty = pattern.isEmpty();
+        final PatternViewMetrics metrics = this.metrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final int hits = hitTester.sweep(lastX, lastY, x, y, sweepHits);
+        if (metrics != null) {
+            metrics.onTiming(PatternViewMetrics.Timing.HIT_TEST, System.nanoTime() - start);
+        }
+        for (int i = 0; i < hits; i++) {
+            addHit(sweepHits[i]);
+        }
+        lastX = x;
+        lastY = y;
+        lastTime = time;
+        if (wasEmpty && !pattern.isEmpty()) {
+            inProgress = true;
+            notifyPatternStart();
+        }
+    }
+
+    /**
+     * Ends the gesture.
+     *
+     * @param time The time in milliseconds.
+     */
+    public void up(final long time) {
+        lastTime = time;
+        if (!pattern.isEmpty()) {
+            inProgress = false;
+            if (listener != null) {
+                final long start = dispatchStart();
+                listener.onPatternDetected();
+                dispatchEnd(start);
+            }
+        }
+    }
+
+    /**
+     * Cancels the gesture, emptying the pattern.
+     */
+    public void cancel() {
+        reset();
+        notifyPatternCleared();
+    }
+
+    /**
+     * Empties the pattern and stops the gesture in progress, if any.
+     */
+    public void reset() {
+        pattern.clear();
+        inProgress = false;
+        if (listener != null) {
+            final long start = dispatchStart();
+            listener.onPatternReset();
+            dispatchEnd(start);
+        }
+    }
+
+    /**
+     * Adds a hit cell, with the cells between it and the last cell of the
+     * pattern, unless it is already part of the pattern.
+     *
+     * @param index The index of the cell, or -1 for no cell.
+     * @return Whether the cell was added.
+     */
+    private boolean addHit(final int index) {
+        if (index < 0 || pattern.containsIndex(index)) {
+            return false;
+        }
+        if (!pattern.isEmpty()) {
+            final int gaps = fillInGap(pattern.getLastIndex(), index);
+            for (int i = 0; i < gaps; i++) {
+                addCell(gapCells[i], false);
+            }
+        }
+        addCell(index, true);
+        return true;
+    }
+
+    /**
+     * Finds the cells that lie exactly on the line between the last cell of the
+     * pattern and the new cell and are not part of the pattern yet, in
+     * {@link #gapCells}. The line is walked in gcd(dRow, dColumn) equal steps,
+     * so it works for any direction and grid size, e.g. (0,0) to (2,4) passes
+     * (1,2).
+     *
+     * @param lastIndex The index of the last cell of the pattern.
+     * @param index     The index of the new cell.
+     * @return The number of cells found.
+     */
+    private int fillInGap(final int lastIndex, final int index) {
+        final PatternViewMetrics metrics = this.metrics;
+        final long start = metrics != null ? System.nanoTime() : 0;
+        int gaps = 0;
+        final int lastRow = lastIndex / columns;
+        final int lastColumn = lastIndex % columns;
+        final int dRow = index / columns - lastRow;
+        final int dColumn = index % columns - lastColumn;
+        final int steps = gcd(Math.abs(dRow), Math.abs(dColumn));
+        if (steps >= 2) {
+            final int stepRow = dRow / steps;
+            final int stepColumn = dColumn / steps;
+            for (int i = 1; i < steps; i++) {
+                final int gapIndex = (lastRow + i * stepRow) * columns + lastColumn + i * stepColumn;
+                if (!pattern.containsIndex(gapIndex)) {
+                    gapCells[gaps++] = gapIndex;
+                }
+            }
+        }
+        if (metrics != null) {
+            metrics.onTiming(PatternViewMetrics.Timing.GAP_FILL, System.nanoTime() - start);
+        }
+        return gaps;
+    }
+
+    private void addCell(final int index, final boolean hit) {
+        pattern.addIndex(index);
+        if (listener != null) {
+            final long start = dispatchStart();
+            listener.onPatternCellAdded(index, pattern.size() - 1, hit);
+            dispatchEnd(start);
+        }
+    }
+
+    private void notifyPatternStart() {
+        if (listener != null) {
+            final long start = dispatchStart();
+            listener.onPatternStart();
+            dispatchEnd(start);
+        }
+    }
+
+    private void notifyPatternCleared() {
+        if (listener != null) {
+            final long start = dispatchStart();
+            listener.onPatternCleared();
+            dispatchEnd(start);
+        }
+    }
+
+    private long dispatchStart() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    private void dispatchEnd(final long start) {
+        if (metrics != null) {
+            metrics.onTiming(PatternViewMetrics.Timing.DISPATCH, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Greatest common divisor of two non negative numbers.
+     */
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            final int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,115 @@
+package com.eftimoff.patternview.touch;
+
+/**
+ * Estimates where the finger will be a short time after the last touch
+ * sample.
+ * <p/>
+ * Position and velocity are tracked with an alpha-beta filter, a fixed gain
+ * simplification of a Kalman filter, using the timestamps of the samples. The
+ * estimate is only meant for drawing, never for hit testing.
+ */
+public class TouchPredictor {
+
+    /**
+     * How far ahead of the last sample {@link #predict(long)} may look.
+     */
+    public static final long MAX_PREDICTION_MILLIS = 32;
+
+    /**
+     * Gains of the filter, how much of the error of the prediction of a
+     * sample corrects the position and the velocity.
+     */
+    private static final float ALPHA = 0.8f;
+    private static final float BETA = 0.3f;
+    /**
+     * Samples further apart than this restart the velocity, the finger
+     * rested in between.
+     */
+    private static final long MAX_SAMPLE_GAP_MILLIS = 100;
+
+    private boolean hasSample;
+    private long lastTime;
+    private float x;
+    private float y;
+    private float velocityX;
+    private float velocityY;
+
+    private float predictedX;
+    private float predictedY;
+
+    /**
+     * Forgets all samples.
+     */
+    public void reset() {
+        hasSample = false;
+        velocityX = 0f;
+        velocityY = 0f;
+    }
+
+    /**
+     * Adds a touch sample.
+     *
+     * @param sampleX The x coordinate.
+     * @param sampleY The y coordinate.
+     * @param time    The time of the sample in milliseconds.
+     */
+    public void addSample(final float sampleX, final float sampleY, final long time) {
+        final long dt = time - lastTime;
+        if (!hasSample || dt > MAX_SAMPLE_GAP_MILLIS || dt < 0) {
+            hasSample = true;
+            lastTime = time;
+            x = sampleX;
+            y = sampleY;
+            velocityX = 0f;
+            velocityY = 0f;
+            return;
+        }
+        if (dt == 0) {
+            // a sample at the same time only corrects the position
+            x = sampleX;
+            y = sampleY;
+            return;
+        }
+        final float estimateX = x + velocityX * dt;
+        final float estimateY = y + velocityY * dt;
+        final float errorX = sampleX - estimateX;
+        final float errorY = sampleY - estimateY;
+        x = estimateX + ALPHA * errorX;
+        y = estimateY + ALPHA * errorY;
+        velocityX += BETA * errorX / dt;
+        velocityY += BETA * errorY / dt;
+        lastTime = time;
+    }
+
+    public boolean hasSample() {
+        return hasSample;
+    }
+
+    /**
+     * Estimates the position at a time, at most
+     * {@link #MAX_PREDICTION_MILLIS} after the last sample. Read it with
+     * {@link #getPredictedX()} and {@link #getPredictedY()}.
+     *
+     * @param time The time in milliseconds.
+     */
+    public void predict(final long time) {
+        final long dt = Math.max(0, Math.min(MAX_PREDICTION_MILLIS, time - lastTime));
+        predictedX = x + velocityX * dt;
+        predictedY = y + velocityY * dt;
+    }
+
+    public float getPredictedX() {
+        return predictedX;
+    }
+
+    public float getPredictedY() {
+        return predictedY;
+    }
+
+    /**
+     * @return The time of the last sample in milliseconds.
+     */
+    public long getLastTime() {
+        return lastTime;
+    }
+}
@@ -0,0 +1,100 @@
+package com.eftimoff.patternview.touch;
+
+/**
+ * Fixed size ring of touch samples kept in primitive arrays.
+ * <p/>
+ * Samples are added at the end and read from the oldest one. When the ring
+ * is full the oldest sample is dropped, so callers that must not lose samples
+ * drain it when {@link #isFull()} is true.
+ */
+public class TouchSampleRing {
+
+    private final float[] xs;
+    private final float[] ys;
+    private final long[] times;
+    private final int mask;
+    private int head;
+    private int size;
+
+    /**
+     * @param capacity The number of samples, rounded up to a power of two.
+     */
+    public TouchSampleRing(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int length = 1;
+        while (length < capacity) {
+            length <<= 1;
+        }
+        xs = new float[length];
+        ys = new float[length];
+        times = new long[length];
+        mask = length - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == mask + 1;
+    }
+
+    /**
+     * Adds a sample, dropping the oldest one if the ring is full.
+     *
+     * @param x    The x coordinate.
+     * @param y    The y coordinate.
+     * @param time The time of the sample in milliseconds.
+     */
+    public void add(final float x, final float y, final long time) {
+        final int slot = (head + size) & mask;
+        xs[slot] = x;
+        ys[slot] = y;
+        times[slot] = time;
+        if (size == mask + 1) {
+            head = (head + 1) & mask;
+        } else {
+            size++;
+        }
+    }
+
+    /**
+     * @param position The position of the sample, 0 for the oldest.
+     */
+    public float getX(final int position) {
+        return xs[slot(position)];
+    }
+
+    public float getY(final int position) {
+        return ys[slot(position)];
+    }
+
+    public long getTime(final int position) {
+        return times[slot(position)];
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int slot(final int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        return (head + position) & mask;
+    }
+}
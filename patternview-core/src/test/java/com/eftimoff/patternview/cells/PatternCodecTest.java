@@ -0,0 +1,296 @@
+package com.eftimoff.patternview.cells;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PatternCodecTest {
+
+    @Test
+    public void encodesTheDocumentedFormat() {
+        final PatternBuffer pattern = new PatternBuffer(3, 3);
+        pattern.addIndex(0);
+        pattern.addIndex(4);
+        pattern.addIndex(8);
+        assertArrayEquals(new byte[]{PatternCodec.VERSION, 3, 3, 3, 0, 4, 8}, PatternCodec.encode(pattern));
+        assertEquals(7, PatternCodec.encodedLength(pattern));
+    }
+
+    @Test
+    public void roundTripsThroughArrays() {
+        final Random random = new Random(13);
+        for (int i = 0; i < 2000; i++) {
+            final PatternBuffer pattern = randomPattern(random);
+            final int offset = random.nextInt(8);
+            final byte[] bytes = new byte[offset + PatternCodec.encodedLength(pattern) + random.nextInt(8)];
+            final int written = PatternCodec.encode(pattern, bytes, offset);
+            assertEquals(PatternCodec.encodedLength(pattern), written);
+
+            final PatternBuffer decoded = new PatternBuffer(pattern.getRowCount(), pattern.getColumnCount());
+            assertEquals(written, PatternCodec.decode(bytes, offset, bytes.length - offset, decoded));
+            assertSamePattern(pattern, decoded);
+        }
+    }
+
+    @Test
+    public void roundTripsThroughBuffers() {
+        final Random random = new Random(14);
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int i = 0; i < 2000; i++) {
+            final PatternBuffer pattern = randomPattern(random);
+            buffer.clear();
+            buffer.position(random.nextInt(8));
+            final int start = buffer.position();
+            PatternCodec.encode(pattern, buffer);
+            assertEquals(PatternCodec.encodedLength(pattern), buffer.position() - start);
+
+            buffer.flip();
+            buffer.position(start);
+            final PatternBuffer decoded = new PatternBuffer(pattern.getRowCount(), pattern.getColumnCount());
+            PatternCodec.decode(buffer, decoded);
+            assertEquals(0, buffer.remaining());
+            assertSamePattern(pattern, decoded);
+        }
+    }
+
+    @Test
+    public void roundTripsAnEmptyPattern() {
+        final PatternBuffer pattern = new PatternBuffer(4, 5);
+        final PatternBuffer decoded = new PatternBuffer(4, 5);
+        decoded.addIndex(3);
+        final byte[] bytes = PatternCodec.encode(pattern);
+        PatternCodec.decode(bytes, 0, bytes.length, decoded);
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void rejectsTooLittleRoom() {
+        final PatternBuffer pattern = fullPattern(4, 4);
+        try {
+            PatternCodec.encode(pattern, new byte[PatternCodec.encodedLength(pattern) - 1], 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        try {
+            PatternCodec.encode(pattern, ByteBuffer.allocate(PatternCodec.encodedLength(pattern) - 1));
+            fail();
+        } catch (java.nio.BufferOverflowException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedInput() {
+        final byte[] bytes = PatternCodec.encode(fullPattern(16, 16));
+        for (int length = 0; length < bytes.length; length++) {
+            assertMalformed(bytes, length, 16, 16);
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedVarints() {
+        // a cell whose varint has the continuation bit set on its last byte
+        assertMalformed(new byte[]{PatternCodec.VERSION, 16, 16, 1, (byte) 0x81}, 16, 16);
+    }
+
+    @Test
+    public void rejectsOverlongVarints() {
+        final byte over = (byte) 0x80;
+        assertMalformed(new byte[]{PatternCodec.VERSION, over, over, over, over, over, 3, 3, 0}, 3, 3);
+        assertMalformed(new byte[]{PatternCodec.VERSION, 3, 3, 1, over, over, over, over, 0x10}, 3, 3);
+        // zero in two bytes instead of one
+        assertMalformed(new byte[]{PatternCodec.VERSION, 3, 3, 1, over, 0}, 3, 3);
+        // five bytes of -1
+        assertMalformed(new byte[]{PatternCodec.VERSION, 3, 3, 1, -1, -1, -1, -1, 0x0f}, 3, 3);
+    }
+
+    @Test
+    public void rejectsRepeatedCells() {
+        assertMalformed(new byte[]{PatternCodec.VERSION, 3, 3, 3, 0, 4, 0}, 3, 3);
+    }
+
+    @Test
+    public void rejectsCellsOutOfRange() {
+        assertMalformed(new byte[]{PatternCodec.VERSION, 3, 3, 2, 0, 9}, 3, 3);
+    }
+
+    @Test
+    public void rejectsTooManyCells() {
+        assertMalformed(new byte[]{PatternCodec.VERSION, 2, 2, 5, 0, 1, 2, 3, 0}, 2, 2);
+    }
+
+    @Test
+    public void rejectsOtherDimensions() {
+        final byte[] bytes = PatternCodec.encode(fullPattern(3, 4));
+        assertMalformed(bytes, 4, 3);
+        assertMalformed(bytes, 3, 3);
+    }
+
+    @Test
+    public void rejectsOtherVersions() {
+        assertMalformed(new byte[]{PatternCodec.VERSION + 1, 3, 3, 0}, 3, 3);
+    }
+
+    @Test
+    public void decodesAnyMutationIntoAPatternOrAnError() {
+        final Random random = new Random(15);
+        for (int i = 0; i < 20000; i++) {
+            final PatternBuffer pattern = randomPattern(random);
+            final byte[] bytes = PatternCodec.encode(pattern);
+            bytes[random.nextInt(bytes.length)] = (byte) random.nextInt(256);
+            final PatternBuffer decoded = new PatternBuffer(pattern.getRowCount(), pattern.getColumnCount());
+            try {
+                PatternCodec.decode(bytes, 0, bytes.length, decoded);
+            } catch (IllegalArgumentException e) {
+                assertTrue(decoded.isEmpty());
+                continue;
+            }
+            // a valid pattern of the same dimensions, which encodes back the same
+            assertArrayEquals(PatternCodec.encode(decoded),
+                    java.util.Arrays.copyOf(bytes, PatternCodec.encodedLength(decoded)));
+        }
+    }
+
+    @Test
+    public void parsesTheLegacyString() {
+        final PatternBuffer pattern = new PatternBuffer(16, 16);
+        PatternCodec.parseString("000-001&015-015&007-003", pattern);
+        assertEquals(3, pattern.size());
+        assertEquals(1, pattern.getIndex(0));
+        assertEquals(255, pattern.getIndex(1));
+        assertEquals(7 * 16 + 3, pattern.getIndex(2));
+    }
+
+    @Test
+    public void parsesAnEmptyStringAsAnEmptyPattern() {
+        final PatternBuffer pattern = new PatternBuffer(3, 3);
+        pattern.addIndex(1);
+        PatternCodec.parseString("", pattern);
+        assertTrue(pattern.isEmpty());
+    }
+
+    @Test
+    public void rejectsMalformedLegacyStrings() {
+        final String[] strings = {
+                "000-001&", "&000-001", "000-001&&000-002", "000", "000-", "-001",
+                "000-001-002", "00a-001", "000-001 ", "000-003", "003-000", "000-000&000-000",
+                "99999999999-000"
+        };
+        for (String string : strings) {
+            final PatternBuffer pattern = new PatternBuffer(3, 3);
+            pattern.addIndex(4);
+            try {
+                PatternCodec.parseString(string, pattern);
+                fail(string);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(string, pattern.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void keepsRepeatedCellsWhenParsingIndices() {
+        final String string = "000-000&001-002&000-000";
+        assertEquals(3, PatternCodec.countStringCells(string));
+        final int[] indices = new int[3];
+        assertEquals(3, PatternCodec.parseStringIndices(string, 3, 3, indices));
+        assertArrayEquals(new int[]{0, 5, 0}, indices);
+        assertEquals(0, PatternCodec.countStringCells(""));
+        assertEquals(0, PatternCodec.parseStringIndices("", 3, 3, new int[0]));
+    }
+
+    @Test
+    public void rejectsMalformedLegacyStringsWhenParsingIndices() {
+        final String[] strings = {
+                "000-001&", "&000-001", "000-001&&000-002", "000", "000-", "-001",
+                "000-001-002", "00a-001", "000-001 ", "000-003", "003-000", "99999999999-000"
+        };
+        for (String string : strings) {
+            try {
+                PatternCodec.parseStringIndices(string, 3, 3, new int[PatternCodec.countStringCells(string)]);
+                fail(string);
+            } catch (IllegalArgumentException expected) {
+                // malformed
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsTooSmallIndexArrays() {
+        PatternCodec.parseStringIndices("000-000&000-001", 3, 3, new int[1]);
+    }
+
+    @Test
+    public void parsesWhatTheCellTableWrites() {
+        final Random random = new Random(16);
+        for (int i = 0; i < 500; i++) {
+            final PatternBuffer pattern = randomPattern(random);
+            final StringBuilder builder = new StringBuilder();
+            for (int j = 0; j < pattern.size(); j++) {
+                if (j > 0) {
+                    builder.append(PatternCodec.SEPARATOR);
+                }
+                builder.append(String.format("%03d-%03d", pattern.getRow(j), pattern.getColumn(j)));
+            }
+            final PatternBuffer parsed = new PatternBuffer(pattern.getRowCount(), pattern.getColumnCount());
+            PatternCodec.parseString(builder, parsed);
+            assertSamePattern(pattern, parsed);
+        }
+    }
+
+    private static void assertMalformed(byte[] bytes, int rows, int columns) {
+        assertMalformed(bytes, bytes.length, rows, columns);
+    }
+
+    private static void assertMalformed(byte[] bytes, int length, int rows, int columns) {
+        final PatternBuffer fromArray = new PatternBuffer(rows, columns);
+        fromArray.addIndex(0);
+        try {
+            PatternCodec.decode(bytes, 0, length, fromArray);
+            fail("decoded " + length + " bytes");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(fromArray.isEmpty());
+        }
+        final PatternBuffer fromBuffer = new PatternBuffer(rows, columns);
+        fromBuffer.addIndex(0);
+        try {
+            PatternCodec.decode(ByteBuffer.wrap(bytes, 0, length), fromBuffer);
+            fail("decoded " + length + " bytes from a buffer");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(fromBuffer.isEmpty());
+        }
+    }
+
+    private static void assertSamePattern(ReadOnlyPattern expected, ReadOnlyPattern actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getIndex(i), actual.getIndex(i));
+        }
+    }
+
+    private static PatternBuffer randomPattern(Random random) {
+        final int rows = 1 + random.nextInt(16);
+        final int columns = 1 + random.nextInt(16);
+        final PatternBuffer pattern = new PatternBuffer(rows, columns);
+        final int size = random.nextInt(rows * columns + 1);
+        while (pattern.size() < size) {
+            pattern.addIndex(random.nextInt(rows * columns));
+        }
+        return pattern;
+    }
+
+    private static PatternBuffer fullPattern(int rows, int columns) {
+        final PatternBuffer pattern = new PatternBuffer(rows, columns);
+        for (int i = 0; i < rows * columns; i++) {
+            pattern.addIndex(i);
+        }
+        return pattern;
+    }
+}
@@ -0,0 +1,147 @@
+package com.eftimoff.patternview.security;
+
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PatternMatcherTest {
+
+    @Test
+    public void startsDeadWithoutPatterns() {
+        final PatternMatcher matcher = new PatternMatcher(3, 3);
+        assertSame(PatternMatcher.State.DEAD, matcher.getState());
+        assertSame(PatternMatcher.State.DEAD, matcher.advance(0));
+        matcher.reset();
+        assertSame(PatternMatcher.State.DEAD, matcher.getState());
+        assertEquals(-1, matcher.getMatch());
+    }
+
+    @Test
+    public void revivesWhenTheFirstPatternIsEnrolled() {
+        final PatternMatcher matcher = new PatternMatcher(3, 3);
+        assertEquals(0, matcher.enroll(pattern(3, 3, 0, 1, 2)));
+        assertSame(PatternMatcher.State.VIABLE, matcher.getState());
+        assertSame(PatternMatcher.State.VIABLE, matcher.advance(0));
+    }
+
+    @Test
+    public void staysDeadAfterADeadCellWhenEnrolling() {
+        final PatternMatcher matcher = new PatternMatcher(3, 3);
+        matcher.enroll(pattern(3, 3, 0, 1, 2));
+        matcher.reset();
+        assertSame(PatternMatcher.State.DEAD, matcher.advance(4));
+        matcher.enroll(pattern(3, 3, 0, 4, 8));
+        assertSame(PatternMatcher.State.DEAD, matcher.getState());
+    }
+
+    @Test
+    public void matchesPrefixesAndPatterns() {
+        final PatternMatcher matcher = new PatternMatcher(3, 3);
+        assertEquals(0, matcher.enroll(pattern(3, 3, 0, 1, 2)));
+        assertEquals(1, matcher.enroll(pattern(3, 3, 0, 1, 2, 5)));
+        assertEquals(2, matcher.enroll(pattern(3, 3, 0, 4)));
+        assertEquals(0, matcher.enroll(pattern(3, 3, 0, 1, 2)));
+        assertEquals(3, matcher.getPatternCount());
+
+        matcher.reset();
+        assertSame(PatternMatcher.State.VIABLE, matcher.advance(0));
+        assertSame(PatternMatcher.State.VIABLE, matcher.advance(1));
+        assertSame(PatternMatcher.State.MATCH, matcher.advance(2));
+        assertEquals(0, matcher.getMatch());
+        assertSame(PatternMatcher.State.MATCH, matcher.advance(5));
+        assertEquals(1, matcher.getMatch());
+        assertSame(PatternMatcher.State.DEAD, matcher.advance(8));
+        assertEquals(-1, matcher.getMatch());
+
+        matcher.reset();
+        matcher.advance(0);
+        assertSame(PatternMatcher.State.MATCH, matcher.advance(4));
+        assertEquals(2, matcher.getMatch());
+    }
+
+    @Test
+    public void agreesWithAListOfPatterns() {
+        final Random random = new Random(7);
+        final int rows = 4;
+        final int columns = 5;
+        final PatternMatcher matcher = new PatternMatcher(rows, columns);
+        final List<int[]> enrolled = new ArrayList<int[]>();
+        for (int i = 0; i < 200; i++) {
+            final int[] cells = randomCells(random, rows * columns);
+            matcher.enroll(pattern(rows, columns, cells));
+            enrolled.add(cells);
+        }
+        for (int i = 0; i < 2000; i++) {
+            // half of the probes follow an enrolled pattern, so the matches are exercised
+            final int[] cells = random.nextBoolean()
+                    ? enrolled.get(random.nextInt(enrolled.size()))
+                    : randomCells(random, rows * columns);
+            matcher.reset();
+            for (int length = 1; length <= cells.length; length++) {
+                final PatternMatcher.State state = matcher.advance(cells[length - 1]);
+                assertSame(expectedState(enrolled, cells, length), state);
+                if (state == PatternMatcher.State.DEAD) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static PatternMatcher.State expectedState(final List<int[]> enrolled, final int[] cells, final int length) {
+        PatternMatcher.State state = PatternMatcher.State.DEAD;
+        for (int[] pattern : enrolled) {
+            if (!startsWith(pattern, cells, length)) {
+                continue;
+            }
+            if (pattern.length == length) {
+                return PatternMatcher.State.MATCH;
+            }
+            state = PatternMatcher.State.VIABLE;
+        }
+        return state;
+    }
+
+    private static boolean startsWith(final int[] pattern, final int[] cells, final int length) {
+        if (pattern.length < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pattern[i] != cells[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] randomCells(final Random random, final int cellCount) {
+        final int[] order = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            order[i] = i;
+        }
+        for (int i = cellCount - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        // short patterns so that prefixes are shared
+        final int[] cells = new int[1 + random.nextInt(4)];
+        System.arraycopy(order, 0, cells, 0, cells.length);
+        return cells;
+    }
+
+    private static PatternBuffer pattern(final int rows, final int columns, final int... cells) {
+        final PatternBuffer pattern = new PatternBuffer(rows, columns);
+        for (int cell : cells) {
+            pattern.addIndex(cell);
+        }
+        return pattern;
+    }
+}
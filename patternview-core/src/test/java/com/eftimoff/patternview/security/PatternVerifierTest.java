@@ -0,0 +1,55 @@
+package com.eftimoff.patternview.security;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatternVerifierTest {
+
+    private static final byte[] SALT = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+    @Test
+    public void takesCellsAfterTheDigest() {
+        final PatternVerifier whole = new PatternVerifier(SALT);
+        whole.addCell(0);
+        whole.addCell(4);
+        whole.addCell(8);
+
+        final PatternVerifier checked = new PatternVerifier(SALT);
+        checked.addCell(0);
+        final byte[] prefix = checked.digest();
+        checked.addCell(4);
+        assertFalse(checked.matches(prefix));
+        checked.addCell(8);
+
+        assertEquals(3, checked.getCellCount());
+        assertArrayEquals(whole.digest(), checked.digest());
+        assertTrue(checked.matches(whole.digest()));
+    }
+
+    @Test
+    public void digestsThePrefixWhileDrawing() {
+        final PatternVerifier prefix = new PatternVerifier(SALT);
+        prefix.addCell(0);
+
+        final PatternVerifier checked = new PatternVerifier(SALT);
+        checked.addCell(0);
+        checked.digest();
+        checked.addCell(4);
+        checked.reset();
+        checked.addCell(0);
+        assertArrayEquals(prefix.digest(), checked.digest());
+    }
+
+    @Test
+    public void dependsOnTheSalt() {
+        final PatternVerifier a = new PatternVerifier(SALT);
+        final PatternVerifier b = new PatternVerifier(new byte[16]);
+        a.addCell(1);
+        b.addCell(1);
+        assertFalse(a.matches(b.digest()));
+    }
+}
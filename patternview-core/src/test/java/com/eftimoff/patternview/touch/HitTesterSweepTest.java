@@ -0,0 +1,105 @@
+package com.eftimoff.patternview.touch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link HitTester#sweep(float, float, float, float, int[])} against hit
+ * tests of points every quarter pixel along the segment.
+ * <p/>
+ * The sweep is exact, so it also finds the cells a segment only grazes,
+ * which the points can miss. Those must be hit by the points once the hit
+ * areas are a pixel larger.
+ */
+public class HitTesterSweepTest {
+
+    private static final int ROWS = 4;
+    private static final int COLUMNS = 6;
+    private static final float LEFT = 13f;
+    private static final float TOP = 7f;
+    private static final float CELL_WIDTH = 90f;
+    private static final float CELL_HEIGHT = 70f;
+    private static final float HIT_SIZE = 0.6f;
+    private static final float STEP = 0.25f;
+
+    @Test
+    public void findsTheCellsOfDenseSamplingWithSquares() {
+        compareWithDenseSampling(HitTester.Shape.SQUARE);
+    }
+
+    @Test
+    public void findsTheCellsOfDenseSamplingWithCircles() {
+        compareWithDenseSampling(HitTester.Shape.CIRCLE);
+    }
+
+    private static void compareWithDenseSampling(HitTester.Shape shape) {
+        final HitTester tester = newTester(shape, HIT_SIZE);
+        // a pixel larger on each side of the smaller cell size
+        final HitTester larger = newTester(shape, HIT_SIZE + 2f / Math.min(CELL_WIDTH, CELL_HEIGHT));
+        final int[] out = new int[tester.getMaxSweepHits()];
+        final Random random = new Random(3);
+        final float width = COLUMNS * CELL_WIDTH;
+        final float height = ROWS * CELL_HEIGHT;
+        for (int i = 0; i < 2000; i++) {
+            // the segments may start and end outside of the grid
+            final float x0 = LEFT - 40f + random.nextFloat() * (width + 80f);
+            final float y0 = TOP - 40f + random.nextFloat() * (height + 80f);
+            final float x1 = LEFT - 40f + random.nextFloat() * (width + 80f);
+            final float y1 = TOP - 40f + random.nextFloat() * (height + 80f);
+            final int[] swept = Arrays.copyOf(out, tester.sweep(x0, y0, x1, y1, out));
+            final int[] sampled = sample(tester, x0, y0, x1, y1);
+            final int[] sampledLarger = sample(larger, x0, y0, x1, y1);
+            final String segment = shape + " (" + x0 + ", " + y0 + ") (" + x1 + ", " + y1 + ")";
+            assertTrue(segment + " " + Arrays.toString(swept) + " " + Arrays.toString(sampled),
+                    isSubsequence(sampled, swept));
+            assertTrue(segment + " " + Arrays.toString(swept) + " " + Arrays.toString(sampledLarger),
+                    isSubsequence(swept, sampledLarger));
+        }
+    }
+
+    private static HitTester newTester(HitTester.Shape shape, float hitSize) {
+        final HitTester tester = new HitTester(ROWS, COLUMNS);
+        tester.setShape(shape);
+        tester.setHitSize(hitSize);
+        tester.setGeometry(LEFT, TOP, CELL_WIDTH, CELL_HEIGHT);
+        return tester;
+    }
+
+    /**
+     * The cells hit by points along the segment, in the order they are first
+     * hit.
+     */
+    private static int[] sample(HitTester tester, float x0, float y0, float x1, float y1) {
+        final float length = (float) Math.hypot(x1 - x0, y1 - y0);
+        final int steps = Math.max(1, (int) Math.ceil(length / STEP));
+        final List<Integer> cells = new ArrayList<>();
+        for (int i = 0; i <= steps; i++) {
+            final float t = i / (float) steps;
+            final int index = tester.hit(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t);
+            if (index >= 0 && !cells.contains(index)) {
+                cells.add(index);
+            }
+        }
+        final int[] result = new int[cells.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cells.get(i);
+        }
+        return result;
+    }
+
+    private static boolean isSubsequence(int[] part, int[] whole) {
+        int j = 0;
+        for (int i = 0; i < whole.length && j < part.length; i++) {
+            if (whole[i] == part[j]) {
+                j++;
+            }
+        }
+        return j == part.length;
+    }
+}
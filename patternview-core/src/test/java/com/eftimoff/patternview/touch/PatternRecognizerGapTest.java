@@ -0,0 +1,209 @@
+package com.eftimoff.patternview.touch;
+
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The cells filled in between two cells of a pattern.
+ * <p/>
+ * The finger moves between two cells along the gaps of the grid, so only the
+ * gap filling can add the cells on the line between them.
+ */
+public class PatternRecognizerGapTest {
+
+    private static final float CELL_SIZE = 100f;
+
+    @Test
+    public void fillsTheCellsOnTheLineOnAWideGrid() {
+        // (0,0) to (2,4) passes (1,2)
+        assertArrayEquals(new int[]{index(5, 0, 0), index(5, 1, 2), index(5, 2, 4)},
+                jump(3, 5, 0, 0, 2, 4));
+    }
+
+    @Test
+    public void fillsTheCellsOnTheLineOnATallGrid() {
+        // (0,0) to (4,2) passes (2,1)
+        assertArrayEquals(new int[]{index(3, 0, 0), index(3, 2, 1), index(3, 4, 2)},
+                jump(5, 3, 0, 0, 4, 2));
+    }
+
+    @Test
+    public void fillsRowsColumnsAndDiagonals() {
+        assertArrayEquals(new int[]{index(7, 1, 0), index(7, 1, 1), index(7, 1, 2), index(7, 1, 3)},
+                jump(4, 7, 1, 0, 1, 3));
+        assertArrayEquals(new int[]{index(7, 0, 5), index(7, 1, 5), index(7, 2, 5), index(7, 3, 5)},
+                jump(4, 7, 0, 5, 3, 5));
+        assertArrayEquals(new int[]{index(7, 3, 6), index(7, 2, 5), index(7, 1, 4), index(7, 0, 3)},
+                jump(4, 7, 3, 6, 0, 3));
+    }
+
+    @Test
+    public void walksTheGcdStepsOnTheLargestGrid() {
+        // gcd(15, 10) = 5 steps of (3,2)
+        assertArrayEquals(new int[]{index(16, 0, 0), index(16, 3, 2), index(16, 6, 4),
+                        index(16, 9, 6), index(16, 12, 8), index(16, 15, 10)},
+                jump(16, 16, 0, 0, 15, 10));
+    }
+
+    @Test
+    public void fillsNothingBetweenCoprimeSteps() {
+        assertArrayEquals(new int[]{index(16, 0, 0), index(16, 1, 2)},
+                jump(16, 16, 0, 0, 1, 2));
+        assertArrayEquals(new int[]{index(9, 15, 8), index(9, 0, 0)},
+                jump(16, 9, 15, 8, 0, 0));
+    }
+
+    @Test
+    public void skipsCellsAlreadyInThePattern() {
+        final PatternRecognizer recognizer = newRecognizer(3, 3);
+        recognizer.down(centerX(1), centerY(1), 0);
+        route(recognizer, 1, 1, 0, 0);
+        route(recognizer, 0, 0, 2, 2);
+        assertArrayEquals(new int[]{4, 0, 8}, indices(recognizer.getPattern()));
+    }
+
+    @Test
+    public void reportsFilledCellsAsNotHit() {
+        final PatternRecognizer recognizer = newRecognizer(3, 5);
+        final List<Boolean> hits = new ArrayList<>();
+        recognizer.setListener(new ListenerAdapter() {
+            @Override
+            public void onPatternCellAdded(int index, int ordinal, boolean hit) {
+                hits.add(hit);
+            }
+        });
+        recognizer.down(centerX(0), centerY(0), 0);
+        route(recognizer, 0, 0, 2, 4);
+        assertEquals(3, hits.size());
+        assertEquals(Boolean.TRUE, hits.get(0));
+        assertEquals(Boolean.FALSE, hits.get(1));
+        assertEquals(Boolean.TRUE, hits.get(2));
+    }
+
+    @Test
+    public void matchesTheCellsExactlyOnTheSegmentOnRectangularGrids() {
+        final int[][] sizes = {{3, 3}, {3, 5}, {5, 3}, {4, 7}, {9, 16}, {16, 16}};
+        for (int[] size : sizes) {
+            final int rows = size[0];
+            final int columns = size[1];
+            for (int from = 0; from < rows * columns; from++) {
+                for (int to = 0; to < rows * columns; to++) {
+                    if (from == to) {
+                        continue;
+                    }
+                    final int fromRow = from / columns;
+                    final int fromColumn = from % columns;
+                    final int toRow = to / columns;
+                    final int toColumn = to % columns;
+                    assertArrayEquals(rows + "x" + columns + " " + from + "->" + to,
+                            onSegment(columns, fromRow, fromColumn, toRow, toColumn),
+                            jump(rows, columns, fromRow, fromColumn, toRow, toColumn));
+                }
+            }
+        }
+    }
+
+    /**
+     * The cells whose centers lie on the segment, found by checking every
+     * cell of the bounding box.
+     */
+    private static int[] onSegment(int columns, int fromRow, int fromColumn, int toRow, int toColumn) {
+        final int dRow = toRow - fromRow;
+        final int dColumn = toColumn - fromColumn;
+        final int steps = Math.max(Math.abs(dRow), Math.abs(dColumn));
+        final List<Integer> cells = new ArrayList<>();
+        cells.add(index(columns, fromRow, fromColumn));
+        // walking the longer axis visits the cells in order
+        for (int i = 1; i < steps; i++) {
+            final int rowTimesSteps = fromRow * steps + i * dRow;
+            final int columnTimesSteps = fromColumn * steps + i * dColumn;
+            if (rowTimesSteps % steps == 0 && columnTimesSteps % steps == 0) {
+                cells.add(index(columns, rowTimesSteps / steps, columnTimesSteps / steps));
+            }
+        }
+        cells.add(index(columns, toRow, toColumn));
+        final int[] result = new int[cells.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cells.get(i);
+        }
+        return result;
+    }
+
+    private static int[] jump(int rows, int columns, int fromRow, int fromColumn, int toRow, int toColumn) {
+        final PatternRecognizer recognizer = newRecognizer(rows, columns);
+        recognizer.down(centerX(fromColumn), centerY(fromRow), 0);
+        route(recognizer, fromRow, fromColumn, toRow, toColumn);
+        recognizer.up(100);
+        return indices(recognizer.getPattern());
+    }
+
+    /**
+     * Moves from the center of a cell to the center of another along the
+     * lines between the cells, where no hit area is.
+     */
+    private static void route(PatternRecognizer recognizer, int fromRow, int fromColumn, int toRow, int toColumn) {
+        final float cornerY = fromRow * CELL_SIZE;
+        final float targetCornerX = toColumn * CELL_SIZE;
+        final long time = recognizer.getLastTime();
+        recognizer.move(fromColumn * CELL_SIZE, cornerY, time + 1);
+        recognizer.move(targetCornerX, cornerY, time + 2);
+        recognizer.move(targetCornerX, toRow * CELL_SIZE, time + 3);
+        recognizer.move(centerX(toColumn), centerY(toRow), time + 4);
+    }
+
+    private static PatternRecognizer newRecognizer(int rows, int columns) {
+        final PatternRecognizer recognizer = new PatternRecognizer(rows, columns);
+        recognizer.getHitTester().setGeometry(0f, 0f, CELL_SIZE, CELL_SIZE);
+        return recognizer;
+    }
+
+    private static float centerX(int column) {
+        return column * CELL_SIZE + CELL_SIZE / 2f;
+    }
+
+    private static float centerY(int row) {
+        return row * CELL_SIZE + CELL_SIZE / 2f;
+    }
+
+    private static int index(int columns, int row, int column) {
+        return row * columns + column;
+    }
+
+    private static int[] indices(PatternBuffer pattern) {
+        final int[] indices = new int[pattern.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = pattern.getIndex(i);
+        }
+        return indices;
+    }
+
+    private static class ListenerAdapter implements PatternRecognizer.Listener {
+
+        @Override
+        public void onPatternReset() {
+        }
+
+        @Override
+        public void onPatternStart() {
+        }
+
+        @Override
+        public void onPatternCellAdded(int index, int ordinal, boolean hit) {
+        }
+
+        @Override
+        public void onPatternDetected() {
+        }
+
+        @Override
+        public void onPatternCleared() {
+        }
+    }
+}
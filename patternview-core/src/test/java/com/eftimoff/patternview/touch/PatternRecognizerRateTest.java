@@ -0,0 +1,94 @@
+package com.eftimoff.patternview.touch;
+
+import com.eftimoff.patternview.cells.PatternBuffer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The same flick replayed at the touch rates of 60, 120 and 240 Hz.
+ * <p/>
+ * A flick is a polyline whose corners fall on the samples of every rate, so
+ * each rate samples the same path and only the distance between two samples
+ * changes. At 60 Hz the finger moves several cells between two samples.
+ */
+public class PatternRecognizerRateTest {
+
+    private static final float CELL_SIZE = 100f;
+    /**
+     * The rates, as the number of 240 Hz ticks between two samples.
+     */
+    private static final int[] TICKS_PER_SAMPLE = {4, 2, 1};
+    private static final int TICKS_PER_CORNER = 4;
+
+    @Test
+    public void addsTheSameCellsAtEveryRate() {
+        // a Z across the grid in 50 ms, up to 420 pixels between two 60 Hz samples
+        final float[] corners = {
+                50f, 50f,
+                470f, 120f,
+                380f, 480f,
+                30f, 310f,
+        };
+        final int[] cells = replay(5, 5, corners, TICKS_PER_SAMPLE[0]);
+        assertTrue(Arrays.toString(cells), cells.length >= 8);
+        for (int i = 1; i < TICKS_PER_SAMPLE.length; i++) {
+            assertArrayEquals(cells, replay(5, 5, corners, TICKS_PER_SAMPLE[i]));
+        }
+    }
+
+    @Test
+    public void addsTheSameCellsAtEveryRateForRandomFlicks() {
+        final Random random = new Random(17);
+        final int[][] sizes = {{3, 3}, {4, 6}, {9, 9}, {16, 16}};
+        for (int[] size : sizes) {
+            final int rows = size[0];
+            final int columns = size[1];
+            for (int flick = 0; flick < 200; flick++) {
+                final float[] corners = new float[2 * (2 + random.nextInt(4))];
+                for (int i = 0; i < corners.length; i += 2) {
+                    corners[i] = random.nextFloat() * columns * CELL_SIZE;
+                    corners[i + 1] = random.nextFloat() * rows * CELL_SIZE;
+                }
+                final int[] cells = replay(rows, columns, corners, TICKS_PER_SAMPLE[0]);
+                for (int i = 1; i < TICKS_PER_SAMPLE.length; i++) {
+                    assertArrayEquals(rows + "x" + columns + " " + Arrays.toString(corners),
+                            cells, replay(rows, columns, corners, TICKS_PER_SAMPLE[i]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the polyline through the corners with one sample every
+     * ticksPerSample ticks of 240 Hz.
+     */
+    private static int[] replay(int rows, int columns, float[] corners, int ticksPerSample) {
+        final PatternRecognizer recognizer = new PatternRecognizer(rows, columns);
+        recognizer.getHitTester().setGeometry(0f, 0f, CELL_SIZE, CELL_SIZE);
+        final int lastTick = (corners.length / 2 - 1) * TICKS_PER_CORNER;
+        recognizer.down(corners[0], corners[1], 0);
+        for (int tick = ticksPerSample; tick <= lastTick; tick += ticksPerSample) {
+            final int corner = Math.min(tick / TICKS_PER_CORNER, corners.length / 2 - 2);
+            final float t = (tick - corner * TICKS_PER_CORNER) / (float) TICKS_PER_CORNER;
+            final float x = corners[2 * corner] + (corners[2 * corner + 2] - corners[2 * corner]) * t;
+            final float y = corners[2 * corner + 1] + (corners[2 * corner + 3] - corners[2 * corner + 1]) * t;
+            recognizer.move(x, y, Math.round(tick * 1000.0 / 240.0));
+        }
+        recognizer.up(Math.round(lastTick * 1000.0 / 240.0));
+        return indices(recognizer.getPattern());
+    }
+
+    private static int[] indices(PatternBuffer pattern) {
+        final int[] indices = new int[pattern.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = pattern.getIndex(i);
+        }
+        return indices;
+    }
+}
@@ -5,12 +5,16 @@ import android.os.Bundle;
 import android.support.v7.app.ActionBarActivity;
 import android.widget.Toast;
 
+import com.eftimoff.patternview.security.PatternVerifier;
+
 
 public class MainActivity extends ActionBarActivity {
 
     private PatternView patternView;
 
-    private String patternString;
+    private final PatternVerifier patternVerifier = new PatternVerifier(PatternVerifier.newSalt());
+
+    private byte[] patternDigest;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -22,16 +26,17 @@ public class MainActivity extends ActionBarActivity {
         patternView.setPathColor(Color.BLACK);
         patternView.setDotColor(Color.BLACK);
         patternView.setCircleColor(Color.BLACK);
+        patternView.setPatternVerifier(patternVerifier);
         patternView.setOnPatternDetectedListener(new PatternView.OnPatternDetectedListener() {
 
             @Override
             public void onPatternDetected() {
-                if (patternString == null) {
-                    patternString = patternView.getPatternString();
+                if (patternDigest == null) {
+                    patternDigest = patternVerifier.digest();
 //                    patternView.clearPattern();
                     return;
                 }
-                if (patternString.equals(patternView.getPatternString())) {
+                if (patternVerifier.matches(patternDigest)) {
                     Toast.makeText(getApplicationContext(), "PATTERN CORRECT", Toast.LENGTH_SHORT).show();
                     return;
                 }